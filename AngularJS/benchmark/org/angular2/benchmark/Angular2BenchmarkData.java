@@ -0,0 +1,102 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angular2.benchmark;
+
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Synthetic directive selectors and templates shaped like the ones of the large component libraries:
+ * mostly prefixed element and attribute selectors, some of them combined with classes, values and {@code :not()}.
+ */
+final class Angular2BenchmarkData {
+
+  private Angular2BenchmarkData() {
+  }
+
+  static @NonNls @NotNull String getSelector(int index) {
+    String prefix = getPrefix(index);
+    switch (index % 6) {
+      case 0:
+        return prefix + "-component-" + index;
+      case 1:
+        return "[" + prefix + "Directive" + index + "]";
+      case 2:
+        return prefix + "-item-" + index + ", [" + prefix + "Item" + index + "]";
+      case 3:
+        return "button[" + prefix + "-button-" + index + "]";
+      case 4:
+        return "input[" + prefix + "Input" + index + "]:not([type=checkbox])";
+      default:
+        return "." + prefix + "-class-" + index + "[" + prefix + "Kind" + index + "=flat]";
+    }
+  }
+
+  /**
+   * Creates a TypeScript file with the directives from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive).
+   */
+  static @NonNls @NotNull String getDirectivesFileText(int fromIndex, int toIndex) {
+    StringBuilder result = new StringBuilder("import {Component, Directive} from '@angular/core';\n\n");
+    for (int i = fromIndex; i < toIndex; i++) {
+      boolean component = i % 6 == 0;
+      result.append(component ? "@Component" : "@Directive")
+        .append("({\n  selector: '").append(getSelector(i)).append("',\n");
+      if (component) {
+        result.append("  template: ''\n");
+      }
+      result.append("})\nexport class Generated").append(i).append(component ? "Component" : "Directive")
+        .append(" {\n}\n\n");
+    }
+    return result.toString();
+  }
+
+  /**
+   * Creates a template with {@code tagsCount} tags, which match the directives with indices below {@code directivesCount}.
+   */
+  static @NonNls @NotNull String getTemplateText(int tagsCount, int directivesCount) {
+    StringBuilder result = new StringBuilder();
+    for (int i = 0; i < tagsCount; i++) {
+      int index = (int)((i * 7919L) % directivesCount);
+      String prefix = getPrefix(index);
+      result.append("<div class=\"row\" *ngIf=\"items.length > ").append(i).append("\">\n");
+      switch (index % 6) {
+        case 0:
+          result.append("  <").append(prefix).append("-component-").append(index)
+            .append(" [value]=\"items[").append(i).append("]\" (change)=\"onChange($event)\">{{ title | uppercase }}</")
+            .append(prefix).append("-component-").append(index).append(">\n");
+          break;
+        case 1:
+          result.append("  <span ").append(prefix).append("Directive").append(index)
+            .append(" title=\"Item ").append(i).append("\">{{ items[").append(i).append("].name }}</span>\n");
+          break;
+        case 2:
+          result.append("  <li ").append(prefix).append("Item").append(index)
+            .append(" *ngFor=\"let item of items; let idx = index\">{{ idx }}</li>\n");
+          break;
+        case 3:
+          result.append("  <button ").append(prefix).append("-button-").append(index)
+            .append(" (click)=\"select(").append(i).append(")\" disabled>Select</button>\n");
+          break;
+        case 4:
+          result.append("  <input ").append(prefix).append("Input").append(index)
+            .append(" type=\"text\" [(ngModel)]=\"items[").append(i).append("].value\">\n");
+          break;
+        default:
+          result.append("  <p class=\"").append(prefix).append("-class-").append(index).append(" other\" ")
+            .append(prefix).append("Kind").append(index).append("=\"flat\">Text ").append(i).append("</p>\n");
+      }
+      result.append("</div>\n");
+    }
+    return result.toString();
+  }
+
+  private static @NotNull String getPrefix(int index) {
+    switch (index % 3) {
+      case 0:
+        return "mat";
+      case 1:
+        return "p";
+      default:
+        return "app";
+    }
+  }
+}
@@ -0,0 +1,41 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angular2.benchmark;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.testFramework.EdtTestUtil;
+import com.intellij.testFramework.LightProjectDescriptor;
+import com.intellij.testFramework.fixtures.CodeInsightTestFixture;
+import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
+import com.intellij.testFramework.fixtures.impl.LightTempDirTestFixtureImpl;
+import com.intellij.util.ThrowableConsumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Light project for the benchmarks which need the platform: file types, extension points, indices and PSI.
+ */
+final class Angular2BenchmarkFixture {
+
+  private CodeInsightTestFixture myFixture;
+
+  void setUp(@NotNull ThrowableConsumer<CodeInsightTestFixture, Exception> configurator) {
+    IdeaTestFixtureFactory factory = IdeaTestFixtureFactory.getFixtureFactory();
+    myFixture = factory.createCodeInsightFixture(
+      factory.createLightFixtureBuilder(LightProjectDescriptor.EMPTY_PROJECT_DESCRIPTOR).getFixture(),
+      new LightTempDirTestFixtureImpl(true));
+    EdtTestUtil.runInEdtAndWait(() -> {
+      myFixture.setUp();
+      configurator.consume(myFixture);
+    });
+  }
+
+  void tearDown() {
+    if (myFixture != null) {
+      EdtTestUtil.runInEdtAndWait(() -> myFixture.tearDown());
+      myFixture = null;
+    }
+  }
+
+  @NotNull Project getProject() {
+    return myFixture.getProject();
+  }
+}
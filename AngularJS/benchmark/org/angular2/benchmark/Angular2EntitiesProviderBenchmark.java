@@ -0,0 +1,61 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angular2.benchmark;
+
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiManager;
+import com.intellij.psi.impl.PsiModificationTrackerImpl;
+import org.angular2.entities.Angular2Directive;
+import org.angular2.entities.Angular2EntitiesProvider;
+import org.angular2.modules.Angular2TestModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Angular2EntitiesProvider#getAllElementDirectives} after a PSI modification, i.e. together with
+ * the index lookups and the creation of the directive entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Angular2EntitiesProviderBenchmark {
+
+  private static final int DIRECTIVES_PER_FILE = 50;
+
+  @Param({"100", "1000", "10000"})
+  public int directivesCount;
+
+  private final Angular2BenchmarkFixture myFixture = new Angular2BenchmarkFixture();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    myFixture.setUp(fixture -> {
+      Angular2TestModule.configureLink(fixture, Angular2TestModule.ANGULAR_CORE_8_2_14);
+      for (int i = 0; i < directivesCount; i += DIRECTIVES_PER_FILE) {
+        fixture.addFileToProject("src/generated/directives" + i + ".ts",
+                                 Angular2BenchmarkData.getDirectivesFileText(
+                                   i, Math.min(i + DIRECTIVES_PER_FILE, directivesCount)));
+      }
+    });
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    myFixture.tearDown();
+  }
+
+  @Setup(Level.Invocation)
+  public void dropCaches() {
+    ((PsiModificationTrackerImpl)PsiManager.getInstance(myFixture.getProject()).getModificationTracker()).incCounter();
+  }
+
+  @Benchmark
+  public Map<String, List<Angular2Directive>> getAllElementDirectives() {
+    return ReadAction.compute(() -> Angular2EntitiesProvider.getAllElementDirectives(myFixture.getProject()));
+  }
+}
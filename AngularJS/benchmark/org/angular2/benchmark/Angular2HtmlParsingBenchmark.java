@@ -0,0 +1,70 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angular2.benchmark;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiFileFactory;
+import org.angular2.lang.html.Angular2HtmlLanguage;
+import org.angular2.lang.html.lexer.Angular2HtmlLexer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lexes and parses large templates, the lexer benchmark covers {@code _Angular2HtmlLexer} and the parser one
+ * {@code Angular2HtmlParsing} together with the lazy parsing of the embedded expressions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Angular2HtmlParsingBenchmark {
+
+  @Param({"1000", "10000"})
+  public int tagsCount;
+
+  private final Angular2BenchmarkFixture myFixture = new Angular2BenchmarkFixture();
+  private String myTemplate;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    myTemplate = Angular2BenchmarkData.getTemplateText(tagsCount, 1000);
+    myFixture.setUp(fixture -> {
+    });
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    myFixture.tearDown();
+  }
+
+  @Benchmark
+  public void lex(Blackhole blackhole) {
+    Angular2HtmlLexer lexer = new Angular2HtmlLexer(true, null);
+    lexer.start(myTemplate);
+    while (lexer.getTokenType() != null) {
+      blackhole.consume(lexer.getTokenType());
+      lexer.advance();
+    }
+  }
+
+  @Benchmark
+  public void parse(Blackhole blackhole) {
+    ReadAction.run(() -> {
+      PsiFile file = PsiFileFactory.getInstance(myFixture.getProject())
+        .createFileFromText("template.html", Angular2HtmlLanguage.INSTANCE, myTemplate, false, false);
+      consumeTree(file.getNode(), blackhole);
+    });
+  }
+
+  private static void consumeTree(ASTNode node, Blackhole blackhole) {
+    for (ASTNode child = node.getFirstChildNode(); child != null; child = child.getTreeNext()) {
+      blackhole.consume(child.getElementType());
+      consumeTree(child, blackhole);
+    }
+  }
+}
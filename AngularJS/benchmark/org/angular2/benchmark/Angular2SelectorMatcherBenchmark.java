@@ -0,0 +1,83 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.angular2.benchmark;
+
+import org.angular2.lang.selector.Angular2DirectiveSimpleSelector;
+import org.angular2.lang.selector.Angular2DirectiveSimpleSelector.ParseException;
+import org.angular2.lang.selector.Angular2SelectorMatcher;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Angular2SelectorMatcherBenchmark {
+
+  private static final int TAGS_COUNT = 64;
+
+  @Param({"100", "1000", "10000"})
+  public int selectorsCount;
+
+  private List<List<Angular2DirectiveSimpleSelector>> mySelectors;
+  private Angular2SelectorMatcher<Integer> myMatcher;
+  private Angular2DirectiveSimpleSelector[] myTags;
+  private int myNextTag;
+
+  @Setup(Level.Trial)
+  public void setUp() throws ParseException {
+    mySelectors = new ArrayList<>(selectorsCount);
+    for (int i = 0; i < selectorsCount; i++) {
+      mySelectors.add(Angular2DirectiveSimpleSelector.parse(Angular2BenchmarkData.getSelector(i)));
+    }
+    myMatcher = buildMatcher();
+
+    myTags = new Angular2DirectiveSimpleSelector[TAGS_COUNT];
+    for (int i = 0; i < TAGS_COUNT; i++) {
+      myTags[i] = Angular2DirectiveSimpleSelector.parse(getTagSelector((int)((i * 7919L) % selectorsCount))).get(0);
+    }
+  }
+
+  @Benchmark
+  public void match(Blackhole blackhole) {
+    Angular2DirectiveSimpleSelector tag = myTags[myNextTag++ % TAGS_COUNT];
+    blackhole.consume(myMatcher.match(tag, (selector, index) -> blackhole.consume(index)));
+  }
+
+  @Benchmark
+  public Angular2SelectorMatcher<Integer> build() {
+    return buildMatcher();
+  }
+
+  private Angular2SelectorMatcher<Integer> buildMatcher() {
+    Angular2SelectorMatcher<Integer> matcher = new Angular2SelectorMatcher<>();
+    for (int i = 0; i < mySelectors.size(); i++) {
+      matcher.addSelectables(mySelectors.get(i), i);
+    }
+    return matcher;
+  }
+
+  /**
+   * Selector of a tag with the usual bindings around, which matches the directive with the given index.
+   */
+  private static String getTagSelector(int index) {
+    String selector = Angular2BenchmarkData.getSelector(index);
+    int comma = selector.indexOf(',');
+    if (comma >= 0) {
+      selector = selector.substring(0, comma);
+    }
+    int not = selector.indexOf(":not(");
+    if (not >= 0) {
+      selector = selector.substring(0, not) + "[type=text]";
+    }
+    if (selector.startsWith("[") || selector.startsWith(".")) {
+      selector = "div" + selector;
+    }
+    return selector + "[ngClass][title][id=item" + index + "]";
+  }
+}
@@ -3,6 +3,8 @@ package org.angular2.codeInsight.attributes;
 
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.NotNullLazyValue;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.xml.XmlTag;
 import com.intellij.util.containers.ContainerUtil;
 import org.angular2.entities.Angular2Directive;
@@ -13,9 +15,11 @@ import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
 
+import static com.intellij.psi.util.CachedValueProvider.Result.create;
 import static org.angular2.codeInsight.tags.Angular2TagDescriptorsProvider.NG_TEMPLATE;
 import static org.angular2.codeInsight.template.Angular2TemplateElementsScopeProvider.isTemplateTag;
 import static org.angular2.entities.Angular2EntitiesProvider.findElementDirectivesCandidates;
+import static org.angular2.entities.Angular2EntitiesProvider.getAllElementDirectives;
 
 public class Angular2ApplicableDirectivesProvider {
 
@@ -40,20 +44,19 @@ public class Angular2ApplicableDirectivesProvider {
                                                @NotNull String tagName,
                                                boolean onlyMatchingTagName,
                                                @NotNull Angular2DirectiveSimpleSelector cssSelector) {
-    Set<Angular2Directive> directiveCandidates = new HashSet<>(
-      findElementDirectivesCandidates(project, tagName));
-    if (!onlyMatchingTagName) {
-      directiveCandidates.addAll(findElementDirectivesCandidates(project, ""));
-    }
-
-    Angular2SelectorMatcher<Angular2Directive> matcher = new Angular2SelectorMatcher<>();
-    directiveCandidates.forEach(d -> matcher.addSelectables(d.getSelector().getSimpleSelectors(), d));
-    myDirectiveCandidates = NotNullLazyValue.createValue(() -> new ArrayList<>(directiveCandidates));
+    myDirectiveCandidates = NotNullLazyValue.createValue(() -> {
+      Set<Angular2Directive> directiveCandidates = new HashSet<>(findElementDirectivesCandidates(project, tagName));
+      if (!onlyMatchingTagName) {
+        directiveCandidates.addAll(findElementDirectivesCandidates(project, ""));
+      }
+      return new ArrayList<>(directiveCandidates);
+    });
 
     boolean isTemplateTag = isTemplateTag(tagName);
     Set<Angular2Directive> matchedDirectives = new HashSet<>();
-    matcher.match(cssSelector, (selector, directive) -> {
-      if (directive.getDirectiveKind().isRegular() || isTemplateTag) {
+    getDirectivesMatcher(project).match(cssSelector, (selector, directive) -> {
+      if ((directive.getDirectiveKind().isRegular() || isTemplateTag)
+          && (!onlyMatchingTagName || hasElementSelector(directive, tagName))) {
         matchedDirectives.add(directive);
       }
     });
@@ -61,6 +64,34 @@ public class Angular2ApplicableDirectivesProvider {
                                                Comparator.comparing(Angular2Directive::getName));
   }
 
+  /**
+   * Matcher of all element and attribute directives in the project. Every tag can be matched only
+   * against the directives indexed for its name and the ones without element selector, so the
+   * results are the same as for a matcher built from {@code findElementDirectivesCandidates}.
+   */
+  private static @NotNull Angular2SelectorMatcher<Angular2Directive> getDirectivesMatcher(@NotNull Project project) {
+    return CachedValuesManager.getManager(project).getCachedValue(project, () -> {
+      Set<Angular2Directive> directives = new LinkedHashSet<>(findElementDirectivesCandidates(project, ""));
+      getAllElementDirectives(project).values().forEach(directives::addAll);
+      Angular2SelectorMatcher<Angular2Directive> matcher = new Angular2SelectorMatcher<>();
+      directives.forEach(d -> matcher.addSelectables(d.getSelector().getSimpleSelectors(), d));
+      return create(matcher, PsiModificationTracker.MODIFICATION_COUNT);
+    });
+  }
+
+  /**
+   * Whether the directive is indexed under the element name, see {@code Angular2EntityUtils.getDirectiveIndexNames}.
+   */
+  private static boolean hasElementSelector(@NotNull Angular2Directive directive, @NotNull String tagName) {
+    for (Angular2DirectiveSimpleSelector selector : directive.getSelector().getSimpleSelectors()) {
+      if (tagName.equals(selector.getElementName())
+          || ContainerUtil.exists(selector.getNotSelectors(), notSelector -> tagName.equals(notSelector.getElementName()))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public List<Angular2Directive> getCandidates() {
     return myDirectiveCandidates.getValue();
   }
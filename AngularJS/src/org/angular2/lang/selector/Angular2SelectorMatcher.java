@@ -9,8 +9,10 @@ import org.jetbrains.annotations.Nullable;
 import java.util.*;
 import java.util.function.BiConsumer;
 
-import static com.intellij.util.containers.ContainerUtil.concat;
-
+/**
+ * Once all selectables are added, the matcher is not modified by {@link #match}, so it can be shared
+ * between threads and reused for any number of matched selectors.
+ */
 public class Angular2SelectorMatcher<T> {
 
   public static <T> Angular2SelectorMatcher<T> createNotMatcher(List<Angular2DirectiveSimpleSelector> notSelectors) {
@@ -25,13 +27,14 @@ public class Angular2SelectorMatcher<T> {
   private final Map<String, Angular2SelectorMatcher<T>> _classPartialMap = new HashMap<>();
   private final Map<String, Map<String, List<SelectorContext<T>>>> _attrValueMap = new HashMap<>();
   private final Map<String, Map<String, Angular2SelectorMatcher<T>>> _attrValuePartialMap = new HashMap<>();
-  private final List<SelectorListContext> _listContexts = new ArrayList<>();
+  private int _listContextsCount = 0;
+  // the longest chain of nested partial matchers, including this one
+  private int _maxDepth = 1;
 
   public void addSelectables(@NotNull List<Angular2DirectiveSimpleSelector> cssSelectors, @Nullable T context) {
     SelectorListContext listContext = null;
     if (cssSelectors.size() > 1) {
-      listContext = new SelectorListContext(cssSelectors);
-      this._listContexts.add(listContext);
+      listContext = new SelectorListContext(_listContextsCount++);
     }
     for (Angular2DirectiveSimpleSelector selector : cssSelectors) {
       _addSelectable(selector, context, listContext);
@@ -48,6 +51,7 @@ public class Angular2SelectorMatcher<T> {
                               @Nullable T callbackCtxt,
                               @Nullable SelectorListContext listContext) {
     Angular2SelectorMatcher<T> matcher = this;
+    int depth = 1;
     String element = cssSelector.element;
     List<String> classNames = cssSelector.classNames;
     List<String> attrs = cssSelector.attrs;
@@ -60,6 +64,7 @@ public class Angular2SelectorMatcher<T> {
       }
       else {
         matcher = _addPartial(matcher._elementPartialMap, element);
+        depth++;
       }
     }
 
@@ -71,6 +76,7 @@ public class Angular2SelectorMatcher<T> {
       }
       else {
         matcher = _addPartial(matcher._classPartialMap, className);
+        depth++;
       }
     }
 
@@ -87,8 +93,10 @@ public class Angular2SelectorMatcher<T> {
         Map<String, Angular2SelectorMatcher<T>> partialValuesMap
           = matcher._attrValuePartialMap.computeIfAbsent(name, k -> new HashMap<>());
         matcher = _addPartial(partialValuesMap, value);
+        depth++;
       }
     }
+    _maxDepth = Math.max(_maxDepth, depth);
   }
 
   private void _addTerminal(@NotNull Map<String, List<SelectorContext<T>>> map,
@@ -116,32 +124,68 @@ public class Angular2SelectorMatcher<T> {
     final String element = cssSelector.element;
     final List<String> classNames = cssSelector.classNames;
     final List<String> attrs = cssSelector.attrs;
+    final int classStepsStart = 2;
+    final int attrStepsStart = classStepsStart + 2 * classNames.size();
+    final int stepsCount = attrStepsStart + 2 * attrs.size();
 
-    _listContexts.forEach(l -> l.alreadyMatched = false);
-
-    boolean result = this._matchTerminal(this._elementMap, element, cssSelector, matchedCallback);
-    result |= this._matchPartial(this._elementPartialMap, element, cssSelector, matchedCallback);
-
-    for (String className : classNames) {
-      result |= this._matchTerminal(this._classMap, className, cssSelector, matchedCallback);
-      result |= this._matchPartial(this._classPartialMap, className, cssSelector, matchedCallback);
-    }
-
-    for (int i = 0; i < attrs.size(); i += 2) {
-      String name = attrs.get(i);
-      String value = attrs.get(i + 1);
+    // Nested partial matchers are processed in the same order as the recursive calls would do,
+    // so every frame remembers the matcher and the next step to be done on it.
+    @SuppressWarnings("unchecked")
+    Angular2SelectorMatcher<T>[] frames = new Angular2SelectorMatcher[_maxDepth];
+    int[] frameSteps = new int[_maxDepth];
+    boolean[] matchedLists = _listContextsCount > 0 && matchedCallback != null ? new boolean[_listContextsCount] : null;
+    frames[0] = this;
+    int depth = 1;
+    boolean result = false;
 
-      Map<String, List<SelectorContext<T>>> terminalValuesMap = this._attrValueMap.get(name);
-      if (StringUtil.isNotEmpty(value)) {
-        result |= this._matchTerminal(terminalValuesMap, "", cssSelector, matchedCallback);
+    while (depth > 0) {
+      Angular2SelectorMatcher<T> matcher = frames[depth - 1];
+      int step = frameSteps[depth - 1]++;
+      if (step >= stepsCount) {
+        frames[--depth] = null;
+        continue;
       }
-      result |= this._matchTerminal(terminalValuesMap, value, cssSelector, matchedCallback);
-
-      Map<String, Angular2SelectorMatcher<T>> partialValuesMap = this._attrValuePartialMap.get(name);
-      if (StringUtil.isNotEmpty(value)) {
-        result |= this._matchPartial(partialValuesMap, "", cssSelector, matchedCallback);
+      Angular2SelectorMatcher<T> nested = null;
+      if (step < classStepsStart) {
+        if (step == 0) {
+          result |= _matchTerminal(matcher._elementMap, element, cssSelector, matchedCallback, matchedLists);
+        }
+        else {
+          nested = _getPartial(matcher._elementPartialMap, element);
+        }
+      }
+      else if (step < attrStepsStart) {
+        String className = classNames.get((step - classStepsStart) / 2);
+        if ((step - classStepsStart) % 2 == 0) {
+          result |= _matchTerminal(matcher._classMap, className, cssSelector, matchedCallback, matchedLists);
+        }
+        else {
+          nested = _getPartial(matcher._classPartialMap, className);
+        }
+      }
+      else {
+        // every attribute takes 4 steps: terminal "", terminal value, partial "" and partial value
+        int attrStep = step - attrStepsStart;
+        int attrIndex = attrStep / 4 * 2;
+        String name = attrs.get(attrIndex);
+        String value = attrs.get(attrIndex + 1);
+        boolean anyValue = attrStep % 2 == 0;
+        if (anyValue && StringUtil.isEmpty(value)) {
+          continue;
+        }
+        String lookupValue = anyValue ? "" : value;
+        if (attrStep % 4 < 2) {
+          result |= _matchTerminal(matcher._attrValueMap.get(name), lookupValue, cssSelector, matchedCallback, matchedLists);
+        }
+        else {
+          nested = _getPartial(matcher._attrValuePartialMap.get(name), lookupValue);
+        }
+      }
+      if (nested != null) {
+        frames[depth] = nested;
+        frameSteps[depth] = 0;
+        depth++;
       }
-      result |= this._matchPartial(partialValuesMap, value, cssSelector, matchedCallback);
     }
     return result;
   }
@@ -149,22 +193,27 @@ public class Angular2SelectorMatcher<T> {
   /**
    * @internal
    */
-  private boolean _matchTerminal(@Nullable Map<String, List<SelectorContext<T>>> map,
-                                 @Nullable String name,
-                                 @NotNull Angular2DirectiveSimpleSelector cssSelector,
-                                 @Nullable BiConsumer<? super Angular2DirectiveSimpleSelector, ? super T> matchedCallback) {
+  private static <T> boolean _matchTerminal(@Nullable Map<String, List<SelectorContext<T>>> map,
+                                            @Nullable String name,
+                                            @NotNull Angular2DirectiveSimpleSelector cssSelector,
+                                            @Nullable BiConsumer<? super Angular2DirectiveSimpleSelector, ? super T> matchedCallback,
+                                            boolean @Nullable [] matchedLists) {
     if (map == null || name == null) {
       return false;
     }
 
-    List<SelectorContext<T>> selectables = map.getOrDefault(name, Collections.emptyList());
-    List<SelectorContext<T>> starSelectables = map.getOrDefault("*", Collections.emptyList());
-    if (selectables.isEmpty() && starSelectables.isEmpty()) {
-      return false;
-    }
+    List<SelectorContext<T>> selectables = map.get(name);
+    List<SelectorContext<T>> starSelectables = map.get("*");
     boolean result = false;
-    for (SelectorContext<T> selectable : concat(selectables, starSelectables)) {
-      result = selectable.finalize(cssSelector, matchedCallback) || result;
+    if (selectables != null) {
+      for (SelectorContext<T> selectable : selectables) {
+        result = selectable.finalize(cssSelector, matchedCallback, matchedLists) || result;
+      }
+    }
+    if (starSelectables != null) {
+      for (SelectorContext<T> selectable : starSelectables) {
+        result = selectable.finalize(cssSelector, matchedCallback, matchedLists) || result;
+      }
     }
     return result;
   }
@@ -172,58 +221,48 @@ public class Angular2SelectorMatcher<T> {
   /**
    * @internal
    */
-  private boolean _matchPartial(@Nullable Map<String, Angular2SelectorMatcher<T>> map,
-                                @Nullable String name,
-                                @NotNull Angular2DirectiveSimpleSelector cssSelector,
-                                @Nullable BiConsumer<Angular2DirectiveSimpleSelector, T> matchedCallback) {
+  private static <T> @Nullable Angular2SelectorMatcher<T> _getPartial(@Nullable Map<String, Angular2SelectorMatcher<T>> map,
+                                                                      @Nullable String name) {
     if (map == null || name == null) {
-      return false;
-    }
-
-    Angular2SelectorMatcher<T> nestedSelector = map.get(name);
-    if (nestedSelector == null) {
-      return false;
+      return null;
     }
-    // TODO(perf): get rid of recursion and measure again
-    // TODO(perf): don't pass the whole selector into the recursion,
-    // but only the not processed parts
-    return nestedSelector.match(cssSelector, matchedCallback);
+    return map.get(name);
   }
 
 
   private static class SelectorListContext {
-    public boolean alreadyMatched = false;
-    public final List<Angular2DirectiveSimpleSelector> selectors;
+    public final int index;
 
-    SelectorListContext(@NotNull List<Angular2DirectiveSimpleSelector> selectors) {
-      this.selectors = selectors;
+    SelectorListContext(int index) {
+      this.index = index;
     }
   }
 
   // Store context to pass back selector and context when a selector is matched
   private static class SelectorContext<T> {
-    public final List<Angular2DirectiveSimpleSelector> notSelectors;
+    public final Angular2SelectorMatcher<T> notMatcher;
     public final Angular2DirectiveSimpleSelector selector;
     public final T context;
     public final SelectorListContext listContext;
 
     SelectorContext(@NotNull Angular2DirectiveSimpleSelector selector, @Nullable T context, @Nullable SelectorListContext listContext) {
-      this.notSelectors = selector.notSelectors;
+      this.notMatcher = selector.notSelectors.isEmpty() ? null : createNotMatcher(selector.notSelectors);
       this.selector = selector;
       this.context = context;
       this.listContext = listContext;
     }
 
     boolean finalize(@NotNull Angular2DirectiveSimpleSelector cssSelector,
-                     @Nullable BiConsumer<? super Angular2DirectiveSimpleSelector, ? super T> callback) {
+                     @Nullable BiConsumer<? super Angular2DirectiveSimpleSelector, ? super T> callback,
+                     boolean @Nullable [] matchedLists) {
+      boolean alreadyMatched = listContext != null && matchedLists != null && matchedLists[listContext.index];
       boolean result = true;
-      if (!notSelectors.isEmpty() && (listContext == null || !listContext.alreadyMatched)) {
-        Angular2SelectorMatcher<T> notMatcher = createNotMatcher(notSelectors);
+      if (notMatcher != null && !alreadyMatched) {
         result = !notMatcher.match(cssSelector, null);
       }
-      if (result && callback != null && (this.listContext == null || !listContext.alreadyMatched)) {
-        if (listContext != null) {
-          listContext.alreadyMatched = true;
+      if (result && callback != null && !alreadyMatched) {
+        if (listContext != null && matchedLists != null) {
+          matchedLists[listContext.index] = true;
         }
         callback.accept(selector, context);
       }
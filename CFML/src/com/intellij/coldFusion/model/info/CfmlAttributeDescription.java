@@ -11,8 +11,9 @@ import java.util.regex.Pattern;
  * @author vnikolaenko
  */
 public class CfmlAttributeDescription implements Comparable<CfmlAttributeDescription> {
+  private final String myNameRegexp;
+  // null for the names without regexp metacharacters, they are matched literally
   private final Pattern myNamePattern;
-  // private String myName;
   private final int myType;
   private final boolean myRequired;
   private String myDescription;
@@ -20,7 +21,8 @@ public class CfmlAttributeDescription implements Comparable<CfmlAttributeDescrip
   private String[] myValues = null;
 
   public CfmlAttributeDescription(String name, int type, boolean required, String description) {
-    myNamePattern = Pattern.compile(name);
+    myNameRegexp = name;
+    myNamePattern = isLiteral(name) ? null : Pattern.compile(name);
     myType = type;
     myRequired = required;
     myDescription = description;
@@ -47,7 +49,8 @@ public class CfmlAttributeDescription implements Comparable<CfmlAttributeDescrip
   }
 
   public String getName() {
-    return myNamePattern.matcher(myNamePattern.pattern()).matches() ? myNamePattern.pattern() : myCompletionExample;
+    if (myNamePattern == null) return myNameRegexp;
+    return myNamePattern.matcher(myNameRegexp).matches() ? myNameRegexp : myCompletionExample;
   }
 
   public String getDescription() {
@@ -55,7 +58,7 @@ public class CfmlAttributeDescription implements Comparable<CfmlAttributeDescrip
   }
 
   public boolean acceptName(String name) {
-    return myNamePattern.matcher(name).matches();
+    return myNamePattern == null ? myNameRegexp.equals(name) : myNamePattern.matcher(name).matches();
   }
 
   public int getType() {
@@ -66,15 +69,22 @@ public class CfmlAttributeDescription implements Comparable<CfmlAttributeDescrip
     return myRequired;
   }
 
+  private static boolean isLiteral(String name) {
+    for (int i = 0; i < name.length(); i++) {
+      if (".[]{}()*+?^$|\\".indexOf(name.charAt(i)) >= 0) return false;
+    }
+    return true;
+  }
+
   @Override
   public int compareTo(CfmlAttributeDescription o) {
-    return myNamePattern.pattern().compareTo(o.myNamePattern.pattern());
+    return myNameRegexp.compareTo(o.myNameRegexp);
   }
 
   @Override
   public String toString() {
     return "" +
-           myNamePattern.pattern() +
+           myNameRegexp +
            "</div>" +
            "" +
            getDescription() +
@@ -17,6 +17,7 @@ import org.xml.sax.helpers.XMLReaderFactory;
 import java.io.InputStream;
 import java.lang.ref.Reference;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -25,6 +26,9 @@ import java.util.Objects;
  * @author vnikolaenko
  */
 public class CfmlLangInfo {
+  // dictionaries by language level, shared by all projects
+  private static final Map<String, Reference<CfmlLangDictionary>> ourDictionaries = new HashMap<>();
+
   private final Project myProject;
   private Reference<CfmlLangDictionary> myCFDictionary;
   private String myCFDictionaryLevel;
@@ -91,7 +95,11 @@ public class CfmlLangInfo {
     synchronized (CfmlLangInfo.class) {
       dictionary = SoftReference.dereference(myCFDictionary);
       if (dictionary == null || !Objects.equals(myCFDictionaryLevel, languageLevel)) {
-        dictionary = new CfmlLangDictionary("scopes.txt", languageLevel);
+        dictionary = SoftReference.dereference(ourDictionaries.get(languageLevel));
+        if (dictionary == null) {
+          dictionary = new CfmlLangDictionary("scopes.txt", languageLevel);
+          ourDictionaries.put(languageLevel, new SoftReference<>(dictionary));
+        }
         myCFDictionary = new SoftReference<>(dictionary);
         myCFDictionaryLevel = languageLevel;
       }
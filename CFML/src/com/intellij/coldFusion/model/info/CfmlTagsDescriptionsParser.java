@@ -3,6 +3,7 @@ package com.intellij.coldFusion.model.info;
 
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.ArrayUtilRt;
+import com.intellij.util.containers.Interner;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
@@ -19,6 +20,9 @@ import java.util.regex.Pattern;
 // TODO: parse functions' parameters descriptions
 // TODO: parse predefined variables
 public class CfmlTagsDescriptionsParser extends DefaultHandler {
+  // names and descriptions repeat across the language levels, the dictionaries of several levels share them
+  private static final Interner<String> ourStrings = Interner.createWeakInterner();
+
   private boolean myIsTagHelpSection = false;
   private boolean myIsAttributeHelpSection = false;
   private boolean myIsFunctionHelpSection = false;
@@ -103,7 +107,7 @@ public class CfmlTagsDescriptionsParser extends DefaultHandler {
         myState = TAG_STATE;
         final String isSingle = attr.getValue("single");
         final String endTagRequired = attr.getValue("endtagrequired");
-        myCurrentTag = new CfmlTagDescription(attr.getValue("name"),
+        myCurrentTag = new CfmlTagDescription(intern(attr.getValue("name")),
                                               Boolean.valueOf(isSingle), Boolean.valueOf(endTagRequired));
       }
       else if (localName.equals("help")) {
@@ -117,24 +121,24 @@ public class CfmlTagsDescriptionsParser extends DefaultHandler {
       else if (localName.equals("parameter")) {
         myIsAttributeHelpSection = false;
         myState = TAG_PARAMETER_STATE;
-        String aName = attr.getValue("name");
+        String aName = intern(attr.getValue("name"));
         int aType = CfmlTypesInfo.getTypeByString(attr.getValue("type"));
         boolean aRequired = Boolean.valueOf(attr.getValue("required"));
         String aDescription = "";
         myCurrentAttribute = new CfmlAttributeDescription(aName, aType, aRequired, aDescription);
       }
       else if (localName.equals("value") && myCurrentAttribute != null) {
-        myCurrentAttribute.addValue(attr.getValue("option"));
+        myCurrentAttribute.addValue(intern(attr.getValue("option")));
       }
     }
     else if (myState == FUNCTION_STATE) {
       myIsFunctionHelpSection = false;
       if (localName.equals("function")) {
-        myCurrentFunction = new CfmlFunctionDescription(attr.getValue("name"), attr.getValue("returns"));
+        myCurrentFunction = new CfmlFunctionDescription(intern(attr.getValue("name")), intern(attr.getValue("returns")));
       }
       else if (localName.equals("parameter") && myCurrentFunction != null) {
-        String aName = attr.getValue("name");
-        String aType = attr.getValue("type");
+        String aName = intern(attr.getValue("name"));
+        String aType = intern(attr.getValue("type"));
         boolean aRequired = Boolean.valueOf(attr.getValue("required"));
 
         myCurrentFunction.addParameter(new CfmlFunctionDescription.CfmlParameterDescription(aName, aType, aRequired));
@@ -162,7 +166,10 @@ public class CfmlTagsDescriptionsParser extends DefaultHandler {
 
   @Override
   public void endElement(String namespaceURI, String localName, String qName) throws SAXException {
-    if (localName.equals("tag") && myCurrentTag != null) {
+    if (localName.equals("help")) {
+      internDescription();
+    }
+    else if (localName.equals("tag") && myCurrentTag != null) {
       myTags.put(myCurrentTag.getName(), myCurrentTag);
       myCurrentTag = null;
     }
@@ -195,6 +202,22 @@ public class CfmlTagsDescriptionsParser extends DefaultHandler {
     }
   }
 
+  private void internDescription() {
+    if (myIsTagHelpSection && myCurrentTag != null) {
+      myCurrentTag.setDescription(intern(myCurrentTag.getDescription()));
+    }
+    if (myIsAttributeHelpSection && myCurrentAttribute != null) {
+      myCurrentAttribute.setDescription(intern(myCurrentAttribute.getDescription()));
+    }
+    else if (myIsFunctionHelpSection && myCurrentFunction != null) {
+      myCurrentFunction.setDescription(intern(myCurrentFunction.getDescription()));
+    }
+  }
+
+  private static String intern(String s) {
+    return s == null ? null : ourStrings.intern(s);
+  }
+
   public Map<String, CfmlFunctionDescription> getFunctions() {
     return myFunctions;
   }
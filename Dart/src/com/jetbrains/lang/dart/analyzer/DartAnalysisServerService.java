@@ -74,6 +74,7 @@ import java.io.File;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.dart.server.internal.remote.RemoteAnalysisServerImpl.DART_FIX_INFO_NON_NULLABLE;
 
@@ -87,6 +88,9 @@ public final class DartAnalysisServerService implements Disposable {
   public static final String MIN_WEBDEV_SDK_VERSION = "2.6.0";
 
   private static final long UPDATE_FILES_TIMEOUT = 300;
+  private static final long UPDATE_VISIBLE_FILES_TIMEOUT = 100;
+  // special value in myFilePathWithOverlaidContentToTimestamp meaning that overlaid content on the server side is unknown
+  private static final long UNKNOWN_OVERLAY_TIMESTAMP = -1;
 
   private static final long CHECK_CANCELLED_PERIOD = 10;
   private static final long SEND_REQUEST_TIMEOUT = TimeUnit.SECONDS.toMillis(1);
@@ -134,9 +138,17 @@ public final class DartAnalysisServerService implements Disposable {
 
   private final DartServerRootsHandler myRootsHandler;
   private final Map<String, Long> myFilePathWithOverlaidContentToTimestamp = new THashMap<>();
+  // edits made to documents since their overlaid content was last sent, see registerDocumentListener()
+  private final Map<String, PendingEdits> myFilePathToPendingEdits = new THashMap<>();
   private final List<String> myVisibleFiles = new ArrayList<>();
   private final Set<Document> myChangedDocuments = new THashSet<>();
   private final Alarm myUpdateFilesAlarm;
+  // coalesces subscription updates caused by switching and closing editors
+  private final Alarm myUpdateVisibleFilesAlarm;
+  // the last subscriptions sent to the server, used to skip sending the same subscriptions again
+  @Nullable private Map<String, List<String>> myLastSentSubscriptions;
+  // number of analysis_setSubscriptions requests that were not sent because they equal myLastSentSubscriptions
+  private final AtomicInteger mySuppressedSubscriptionRequestCount = new AtomicInteger();
 
   @NotNull private final Queue<CompletionInfo> myCompletionInfos = new LinkedList<>();
   @NotNull private final Queue<SearchResultsSet> mySearchResultSets = new LinkedList<>();
@@ -162,6 +174,9 @@ public final class DartAnalysisServerService implements Disposable {
 
   @NotNull private final EvictingQueue<String> myDebugLog = EvictingQueue.create(DEBUG_LOG_CAPACITY);
 
+  // how many times each request didn't get a response in time, key is request method name with timeout
+  @NotNull private final TObjectIntHashMap<String> myTimeoutCounts = new TObjectIntHashMap<>();
+
   private boolean myDisposed;
   private final @NotNull Condition<?> myDisposedCondition = o -> myDisposed;
 
@@ -310,6 +325,10 @@ public final class DartAnalysisServerService implements Disposable {
       if (RequestErrorCode.SERVER_ERROR.equals(error.getCode())) {
         serverError(false, error.getMessage(), error.getStackTrace());
       }
+      else if (RequestErrorCode.INVALID_OVERLAY_CHANGE.equals(error.getCode())) {
+        LOG.info(getShortErrorMessage("analysis_updateContent", null, error));
+        resendAllOverlaidContent();
+      }
       else {
         LOG.info(getShortErrorMessage("unknown", null, error));
       }
@@ -425,22 +444,40 @@ public final class DartAnalysisServerService implements Disposable {
   }
 
   public int[] getConvertedOffsets(@NotNull final VirtualFile file, final int[] _offsets) {
-    final int[] offsets = new int[_offsets.length];
-    for (int i = 0; i < _offsets.length; i++) {
-      offsets[i] = getConvertedOffset(file, _offsets[i]);
-    }
+    final int[] offsets = _offsets.clone();
+    convertOffsetsAndLengths(file, offsets, null, offsets.length);
     return offsets;
   }
 
   public int[] getConvertedLengths(@NotNull final VirtualFile file, final int[] _offsets, final int[] _lengths) {
-    final int[] offsets = getConvertedOffsets(file, _offsets);
-    final int[] lengths = new int[_lengths.length];
-    for (int i = 0; i < _lengths.length; i++) {
-      lengths[i] = getConvertedOffset(file, _offsets[i] + _lengths[i]) - offsets[i];
-    }
+    final int[] offsets = _offsets.clone();
+    final int[] lengths = _lengths.clone();
+    convertOffsetsAndLengths(file, offsets, lengths, offsets.length);
     return lengths;
   }
 
+  /**
+   * Converts first {@code count} offsets and lengths received from the server in place, see {@link #getConvertedOffset}.
+   *
+   * @param lengths may be {@code null} if only offsets need to be converted
+   */
+  void convertOffsetsAndLengths(@Nullable final VirtualFile file, final int @NotNull [] offsets, final int @Nullable [] lengths, int count) {
+    if (file == null || myFilePathWithOverlaidContentToTimestamp.containsKey(file.getPath())) return;
+
+    final FileOffsetsManager offsetsManager = FileOffsetsManager.getInstance();
+    for (int i = 0; i < count; i++) {
+      final int originalOffset = offsets[i];
+      if (originalOffset > 0) {
+        offsets[i] = offsetsManager.getConvertedOffset(file, originalOffset);
+      }
+      if (lengths != null) {
+        final int originalEndOffset = originalOffset + lengths[i];
+        final int convertedEndOffset = originalEndOffset > 0 ? offsetsManager.getConvertedOffset(file, originalEndOffset) : originalEndOffset;
+        lengths[i] = convertedEndOffset - offsets[i];
+      }
+    }
+  }
+
   public static boolean isDartSdkVersionSufficient(@NotNull final DartSdk sdk) {
     return StringUtil.compareVersionNumbers(sdk.getVersion(), MIN_SDK_VERSION) >= 0;
   }
@@ -522,6 +559,7 @@ public final class DartAnalysisServerService implements Disposable {
     myRootsHandler = new DartServerRootsHandler(project);
     myServerData = new DartServerData(this);
     myUpdateFilesAlarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
+    myUpdateVisibleFilesAlarm = new Alarm(Alarm.ThreadToUse.POOLED_THREAD, this);
     myShowServerProgressAlarm = new Alarm(this);
     myServerErrorHandler = new DartAnalysisServerErrorHandler(project);
 
@@ -666,7 +704,7 @@ public final class DartAnalysisServerService implements Disposable {
         updateCurrentFile();
 
         if (isLocalAnalyzableFile(file)) {
-          updateVisibleFiles();
+          scheduleVisibleFilesUpdate();
         }
       }
 
@@ -675,7 +713,7 @@ public final class DartAnalysisServerService implements Disposable {
         updateCurrentFile();
 
         if (isLocalAnalyzableFile(event.getOldFile()) || isLocalAnalyzableFile(event.getNewFile())) {
-          updateVisibleFiles();
+          scheduleVisibleFilesUpdate();
         }
       }
 
@@ -689,7 +727,7 @@ public final class DartAnalysisServerService implements Disposable {
             myServerData.onFileClosed(file);
           }
 
-          updateVisibleFiles();
+          scheduleVisibleFilesUpdate();
         }
       }
     });
@@ -718,6 +756,18 @@ public final class DartAnalysisServerService implements Disposable {
         myUpdateFilesAlarm.cancelAllRequests();
         myUpdateFilesAlarm.addRequest(DartAnalysisServerService.this::updateFilesContent, UPDATE_FILES_TIMEOUT);
       }
+
+      @Override
+      public void documentChanged(@NotNull DocumentEvent e) {
+        if (myServer == null || !isIncrementalOverlaysEnabled()) return;
+
+        final VirtualFile file = FileDocumentManager.getInstance().getFile(e.getDocument());
+        if (!isLocalAnalyzableFile(file)) return;
+
+        synchronized (myLock) {
+          recordPendingEdit(file.getPath(), e);
+        }
+      }
     };
 
     EditorFactory.getInstance().getEventMulticaster().addDocumentListener(documentListener, this);
@@ -753,12 +803,12 @@ public final class DartAnalysisServerService implements Disposable {
   }
 
   @Nullable
-  public AvailableSuggestionSet getAvailableSuggestionSet(int id) {
+  public DartAvailableSuggestionSet getAvailableSuggestionSet(int id) {
     return myServerData.getAvailableSuggestionSet(id);
   }
 
   @Nullable
-  public Map<String, Map<String, Set<String>>> getExistingImports(@Nullable String filePathSD) {
+  public DartExistingImports getExistingImports(@Nullable String filePathSD) {
     return myServerData.getExistingImports(filePathSD);
   }
 
@@ -822,6 +872,24 @@ public final class DartAnalysisServerService implements Disposable {
     return null;
   }
 
+  /**
+   * Editor events often come in bursts (switching tabs quickly, 'Close All'), so visible files are updated with a small delay
+   * and only once per burst.
+   */
+  private void scheduleVisibleFilesUpdate() {
+    if (ApplicationManager.getApplication().isUnitTestMode()) {
+      updateVisibleFiles();
+      return;
+    }
+
+    myUpdateVisibleFilesAlarm.cancelAllRequests();
+    myUpdateVisibleFilesAlarm.addRequest(() -> ApplicationManager.getApplication().runReadAction(() -> {
+      if (!myProject.isDisposed()) {
+        updateVisibleFiles();
+      }
+    }), UPDATE_VISIBLE_FILES_TIMEOUT);
+  }
+
   public void updateVisibleFiles() {
     ApplicationManager.getApplication().assertReadAccessAllowed();
 
@@ -843,6 +911,14 @@ public final class DartAnalysisServerService implements Disposable {
     }
   }
 
+  /**
+   * @return number of {@code analysis.setSubscriptions} requests that were not sent to the server because the subscriptions were
+   * the same as the last sent ones
+   */
+  public int getSuppressedSubscriptionRequestCount() {
+    return mySuppressedSubscriptionRequestCount.get();
+  }
+
   /**
    * Return true if the given file can be analyzed by Dart Analysis Server.
    */
@@ -873,9 +949,72 @@ public final class DartAnalysisServerService implements Disposable {
     }
   }
 
-  private void doUpdateFilesContent() {
-    // may be use DocumentListener to collect deltas instead of sending the whole Document.getText() each time?
+  private static boolean isIncrementalOverlaysEnabled() {
+    return Registry.is("dart.server.incremental.overlays", false);
+  }
+
+  /**
+   * Remembers the edit so that it can be sent as a part of {@link ChangeContentOverlay} instead of the whole document text.
+   * The chain of edits is valid only if it starts at the document state that has been sent to the server as overlaid content
+   * and if no document modification has been missed since then. Both conditions are checked using document modification stamps.
+   */
+  private void recordPendingEdit(@NotNull final String filePath, @NotNull final DocumentEvent e) {
+    PendingEdits pendingEdits = myFilePathToPendingEdits.get(filePath);
+    if (pendingEdits == null || pendingEdits.myLastTimestamp != e.getOldTimeStamp()) {
+      final Long overlaidTimestamp = myFilePathWithOverlaidContentToTimestamp.get(filePath);
+      if (overlaidTimestamp == null || overlaidTimestamp != e.getOldTimeStamp()) {
+        // edit history is ambiguous, the whole document text will be sent
+        myFilePathToPendingEdits.remove(filePath);
+        return;
+      }
+
+      pendingEdits = new PendingEdits(overlaidTimestamp);
+      myFilePathToPendingEdits.put(filePath, pendingEdits);
+    }
+
+    final String replacement = e.getNewFragment().toString();
+    pendingEdits.myEdits.add(new SourceEdit(e.getOffset(), e.getOldLength(), replacement, null));
+    pendingEdits.myReplacementLength += replacement.length();
+    pendingEdits.myLastTimestamp = e.getDocument().getModificationStamp();
+  }
 
+  /**
+   * Returns {@link ChangeContentOverlay} if pending edits exactly describe the difference between the overlaid content known to the
+   * server and the current document text, and if sending them is cheaper than sending the whole text. Otherwise returns {@code null}.
+   */
+  @Nullable
+  private ChangeContentOverlay takeChangeContentOverlay(@NotNull final String filePath,
+                                                       @NotNull final Document document,
+                                                       @Nullable final Long oldTimestamp) {
+    final PendingEdits pendingEdits = myFilePathToPendingEdits.remove(filePath);
+    if (pendingEdits == null ||
+        oldTimestamp == null ||
+        pendingEdits.myBaseTimestamp != oldTimestamp ||
+        pendingEdits.myLastTimestamp != document.getModificationStamp() ||
+        pendingEdits.myReplacementLength >= document.getTextLength() / 2) {
+      return null;
+    }
+
+    return new ChangeContentOverlay(pendingEdits.myEdits);
+  }
+
+  /**
+   * Called when the server failed to apply {@link ChangeContentOverlay}. As the server doesn't tell which file is affected,
+   * the whole text of all overlaid files is sent again.
+   */
+  private void resendAllOverlaidContent() {
+    synchronized (myLock) {
+      myFilePathToPendingEdits.clear();
+      for (Map.Entry<String, Long> entry : myFilePathWithOverlaidContentToTimestamp.entrySet()) {
+        entry.setValue(UNKNOWN_OVERLAY_TIMESTAMP);
+      }
+    }
+
+    myUpdateFilesAlarm.cancelAllRequests();
+    myUpdateFilesAlarm.addRequest(this::updateFilesContent, 0);
+  }
+
+  private void doUpdateFilesContent() {
     AnalysisServer server = myServer;
     if (server == null) {
       return;
@@ -903,9 +1042,12 @@ public final class DartAnalysisServerService implements Disposable {
 
           final Long oldTimestamp = myFilePathWithOverlaidContentToTimestamp.get(file.getPath());
           if (oldTimestamp == null || document.getModificationStamp() != oldTimestamp) {
-            filesToUpdate.put(FileUtil.toSystemDependentName(file.getPath()), new AddContentOverlay(document.getText()));
+            final ChangeContentOverlay changeOverlay = takeChangeContentOverlay(file.getPath(), document, oldTimestamp);
+            filesToUpdate.put(FileUtil.toSystemDependentName(file.getPath()),
+                              changeOverlay != null ? changeOverlay : new AddContentOverlay(document.getText()));
             myFilePathWithOverlaidContentToTimestamp.put(file.getPath(), document.getModificationStamp());
           }
+          myFilePathToPendingEdits.remove(file.getPath());
         }
       }
 
@@ -913,6 +1055,7 @@ public final class DartAnalysisServerService implements Disposable {
       for (String oldPath : oldTrackedFiles) {
         final Long removed = myFilePathWithOverlaidContentToTimestamp.remove(oldPath);
         LOG.assertTrue(removed != null, oldPath);
+        myFilePathToPendingEdits.remove(oldPath);
         filesToUpdate.put(FileUtil.toSystemDependentName(oldPath), new RemoveContentOverlay());
       }
 
@@ -1063,14 +1206,7 @@ public final class DartAnalysisServerService implements Disposable {
     server.analysis_getNavigation(filePath, offset, length, new GetNavigationConsumer() {
       @Override
       public void computedNavigation(final List<NavigationRegion> regions) {
-        final List<DartServerData.DartNavigationRegion> dartRegions = new ArrayList<>(regions.size());
-        for (NavigationRegion region : regions) {
-          if (region.getLength() > 0) {
-            dartRegions.add(DartServerData.createDartNavigationRegion(DartAnalysisServerService.this, file, region));
-          }
-        }
-
-        resultRef.set(dartRegions);
+        resultRef.set(DartServerData.createDartNavigationRegions(DartAnalysisServerService.this, file, regions));
         latch.countDown();
       }
 
@@ -1771,17 +1907,27 @@ public final class DartAnalysisServerService implements Disposable {
     synchronized (myLock) {
       if (myServer == null) return;
 
+      // copy, because myVisibleFiles is modified later and the map is kept in myLastSentSubscriptions
+      final List<String> visibleFiles = ImmutableList.copyOf(myVisibleFiles);
       final Map<String, List<String>> subscriptions = new THashMap<>();
-      subscriptions.put(AnalysisService.HIGHLIGHTS, myVisibleFiles);
-      subscriptions.put(AnalysisService.NAVIGATION, myVisibleFiles);
-      subscriptions.put(AnalysisService.OVERRIDES, myVisibleFiles);
-      subscriptions.put(AnalysisService.OUTLINE, myVisibleFiles);
+      subscriptions.put(AnalysisService.HIGHLIGHTS, visibleFiles);
+      subscriptions.put(AnalysisService.NAVIGATION, visibleFiles);
+      subscriptions.put(AnalysisService.OVERRIDES, visibleFiles);
+      subscriptions.put(AnalysisService.OUTLINE, visibleFiles);
       if (StringUtil.compareVersionNumbers(mySdkVersion, "1.13") >= 0) {
-        subscriptions.put(AnalysisService.IMPLEMENTED, myVisibleFiles);
+        subscriptions.put(AnalysisService.IMPLEMENTED, visibleFiles);
       }
       if (DartClosingLabelManager.getInstance().getShowClosingLabels()
           && StringUtil.compareVersionNumbers(mySdkVersion, "1.25.0") >= 0) {
-        subscriptions.put(AnalysisService.CLOSING_LABELS, myVisibleFiles);
+        subscriptions.put(AnalysisService.CLOSING_LABELS, visibleFiles);
+      }
+
+      if (subscriptions.equals(myLastSentSubscriptions)) {
+        final int total = mySuppressedSubscriptionRequestCount.incrementAndGet();
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("analysis_setSubscriptions skipped, subscriptions didn't change, total skipped: " + total);
+        }
+        return;
       }
 
       if (LOG.isDebugEnabled()) {
@@ -1789,6 +1935,7 @@ public final class DartAnalysisServerService implements Disposable {
       }
 
       myServer.analysis_setSubscriptions(subscriptions);
+      myLastSentSubscriptions = subscriptions;
     }
   }
 
@@ -2122,6 +2269,10 @@ public final class DartAnalysisServerService implements Disposable {
     synchronized (myLock) {
       if (myServer != null) {
         LOG.debug("stopping server");
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Analysis server response latency:\n" + myServer.getLatencyStatistics());
+          LOG.debug("Analysis server request timeouts: " + getTimeoutCounts());
+        }
         myServer.removeAnalysisServerListener(myAnalysisServerListener);
         for (AnalysisServerListener listener : myAdditionalServerListeners) {
           myServer.removeAnalysisServerListener(listener);
@@ -2147,11 +2298,14 @@ public final class DartAnalysisServerService implements Disposable {
 
       stopShowingServerProgress();
       myUpdateFilesAlarm.cancelAllRequests();
+      myUpdateVisibleFilesAlarm.cancelAllRequests();
+      myLastSentSubscriptions = null;
 
       myServerSocket = null;
       myServer = null;
       mySdkHome = null;
       myFilePathWithOverlaidContentToTimestamp.clear();
+      myFilePathToPendingEdits.clear();
       myVisibleFiles.clear();
       myChangedDocuments.clear();
       myServerData.clearData();
@@ -2237,15 +2391,39 @@ public final class DartAnalysisServerService implements Disposable {
   }
 
   private void logTookTooLongMessage(@NonNls @NotNull final String methodName, final long timeout, @Nullable String filePath) {
+    final int timeoutCount;
+    synchronized (myTimeoutCounts) {
+      final String key = methodName + "(" + timeout + "ms)";
+      myTimeoutCounts.adjustOrPutValue(key, 1, 1);
+      timeoutCount = myTimeoutCounts.get(key);
+    }
+
     @NonNls StringBuilder builder = new StringBuilder();
     builder.append(methodName).append("() took longer than ").append(timeout).append("ms");
     if (filePath != null) {
       builder.append(", for file ").append(filePath);
     }
     builder.append(", Dart SDK version: ").append(mySdkVersion);
+    builder.append(", timed out ").append(timeoutCount).append(" time(s) in this session");
     LOG.info(builder.toString());
   }
 
+  /**
+   * @return how many times each request hasn't got a response in time, keys are request method names with timeouts, like
+   * {@code edit_getFixes(100ms)}
+   */
+  @NotNull
+  public Map<String, Integer> getTimeoutCounts() {
+    final Map<String, Integer> result = new TreeMap<>();
+    synchronized (myTimeoutCounts) {
+      myTimeoutCounts.forEachEntry((key, count) -> {
+        result.put(key, count);
+        return true;
+      });
+    }
+    return result;
+  }
+
   private static boolean awaitForLatchCheckingCanceled(@NotNull final AnalysisServer server,
                                                        @NotNull final CountDownLatch latch,
                                                        long timeoutInMillis) {
@@ -2285,6 +2463,23 @@ public final class DartAnalysisServerService implements Disposable {
                            @Nullable String libraryFilePathSD);
   }
 
+  /**
+   * Document edits that haven't been sent to the server yet.
+   */
+  private static class PendingEdits {
+    // modification stamp of the document state known to the server as overlaid content
+    private final long myBaseTimestamp;
+    // modification stamp of the document after the last recorded edit
+    private long myLastTimestamp;
+    private int myReplacementLength;
+    @NotNull private final List<SourceEdit> myEdits = new ArrayList<>();
+
+    PendingEdits(long baseTimestamp) {
+      myBaseTimestamp = baseTimestamp;
+      myLastTimestamp = baseTimestamp;
+    }
+  }
+
   private static class CompletionInfo {
     @NotNull private final String myCompletionId;
     /**
@@ -0,0 +1,56 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.analyzer;
+
+import org.dartlang.analysis.server.protocol.AvailableSuggestion;
+import org.dartlang.analysis.server.protocol.AvailableSuggestionSet;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * {@link AvailableSuggestionSet} with the suggestions grouped by element kind, so that completion visits only the suggestions
+ * of the kinds included for the current location instead of all declarations of the library.
+ */
+public final class DartAvailableSuggestionSet {
+  private static final AvailableSuggestion[] EMPTY_ARRAY = new AvailableSuggestion[0];
+
+  private final int myId;
+  private final String myUri;
+  private final Map<String, AvailableSuggestion[]> mySuggestionsByKind;
+
+  DartAvailableSuggestionSet(@NotNull AvailableSuggestionSet suggestionSet) {
+    myId = suggestionSet.getId();
+    myUri = suggestionSet.getUri();
+
+    final Map<String, List<AvailableSuggestion>> byKind = new HashMap<>();
+    for (AvailableSuggestion suggestion : suggestionSet.getItems()) {
+      byKind.computeIfAbsent(suggestion.getElement().getKind(), kind -> new ArrayList<>()).add(suggestion);
+    }
+
+    mySuggestionsByKind = new HashMap<>(byKind.size());
+    for (Map.Entry<String, List<AvailableSuggestion>> entry : byKind.entrySet()) {
+      mySuggestionsByKind.put(entry.getKey(), entry.getValue().toArray(EMPTY_ARRAY));
+    }
+  }
+
+  public int getId() {
+    return myId;
+  }
+
+  @NotNull
+  public String getUri() {
+    return myUri;
+  }
+
+  public void processSuggestions(@NotNull Collection<String> kinds, @NotNull Consumer<? super AvailableSuggestion> consumer) {
+    for (String kind : kinds) {
+      final AvailableSuggestion[] suggestions = mySuggestionsByKind.get(kind);
+      if (suggestions == null) continue;
+
+      for (AvailableSuggestion suggestion : suggestions) {
+        consumer.accept(suggestion);
+      }
+    }
+  }
+}
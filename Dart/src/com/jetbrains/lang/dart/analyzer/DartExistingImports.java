@@ -0,0 +1,44 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.util.SmartList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Libraries imported by a file, indexed by the declarations they make available. The Analysis Server reports the names
+ * per imported library, completion needs the opposite: the imported libraries that provide a given declaration.
+ */
+public final class DartExistingImports {
+  // declaring library URI -> declaration name -> URIs of the imported libraries that export the declaration
+  private final Map<String, Map<String, List<String>>> myImportedLibraries = new HashMap<>();
+
+  /**
+   * @param existingImports imported library URI -> declaring library URI -> declaration names, as reported by the server
+   */
+  DartExistingImports(@NotNull Map<String, Map<String, Set<String>>> existingImports) {
+    for (Map.Entry<String, Map<String, Set<String>>> importEntry : existingImports.entrySet()) {
+      final String importedLibraryUri = importEntry.getKey();
+      for (Map.Entry<String, Set<String>> declaringEntry : importEntry.getValue().entrySet()) {
+        final Map<String, List<String>> byName = myImportedLibraries.computeIfAbsent(declaringEntry.getKey(), uri -> new HashMap<>());
+        for (String name : declaringEntry.getValue()) {
+          byName.computeIfAbsent(name, n -> new SmartList<>()).add(importedLibraryUri);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return URIs of the imported libraries that make the declaration available, or {@code null} if none of them does
+   */
+  @Nullable
+  public List<String> getImportedLibraries(@NotNull String declaringLibraryUri, @NotNull String name) {
+    final Map<String, List<String>> byName = myImportedLibraries.get(declaringLibraryUri);
+    return byName == null ? null : byName.get(name);
+  }
+}
@@ -0,0 +1,480 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.jetbrains.lang.dart.analyzer.DartServerData.*;
+import org.dartlang.analysis.server.protocol.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Regions of one kind (highlights, navigation, etc.) reported by the Analysis Server for one file. Regions are stored column-wise in
+ * primitive arrays instead of being separate heap objects. Per-region data that never changes after the server notification
+ * (highlight type, navigation targets, overridden members) is kept in arrays indexed by the original region index (row).
+ * Offsets and lengths are updated on typing, they are kept in an immutable {@link Snapshot} that is replaced as a whole, so readers
+ * don't need any locks. The updates are synchronized, so that concurrent updates don't lose each other.
+ * <p>
+ * {@link DartRegion} instances returned by {@link #asList()} are lightweight views created on demand. The list itself is backed by the
+ * snapshot that was current when it was created, so its size and elements are always consistent with each other.
+ */
+class DartRegionTable {
+  private static final int[] EMPTY_INT_ARRAY = new int[0];
+
+  private static final class Snapshot {
+    private final int[] myRows;
+    private final int[] myOffsets;
+    private final int[] myLengths;
+
+    private Snapshot(int[] rows, int[] offsets, int[] lengths) {
+      myRows = rows;
+      myOffsets = offsets;
+      myLengths = lengths;
+    }
+  }
+
+  private volatile Snapshot mySnapshot;
+
+  /**
+   * @param offsets already converted offsets, see {@link DartAnalysisServerService#convertOffsetsAndLengths}
+   * @param lengths already converted lengths
+   */
+  DartRegionTable(int @NotNull [] offsets, int @NotNull [] lengths) {
+    final int[] rows = new int[offsets.length];
+    for (int i = 0; i < rows.length; i++) {
+      rows[i] = i;
+    }
+    mySnapshot = new Snapshot(rows, offsets, lengths);
+  }
+
+  final int size() {
+    return mySnapshot.myRows.length;
+  }
+
+  @NotNull
+  DartRegion createRegion(int offset, int length, int row) {
+    return new DartRegion(offset, length);
+  }
+
+  @NotNull
+  List<? extends DartRegion> asList() {
+    return new RegionList<>(this, mySnapshot);
+  }
+
+  /**
+   * Shifts regions located after the edited text and deletes regions touched by editing.
+   */
+  synchronized void updateDeletingTouched(@NotNull final DocumentEvent e) {
+    final int eventOffset = e.getOffset();
+    final int deltaLength = e.getNewLength() - e.getOldLength();
+    if (deltaLength == 0) return;
+
+    final Snapshot snapshot = mySnapshot;
+    final int size = snapshot.myRows.length;
+    final int[] rows = new int[size];
+    final int[] offsets = new int[size];
+    final int[] lengths = new int[size];
+    // eventRightOffset == eventOffset if something was typed
+    final int eventRightOffset = deltaLength > 0 ? eventOffset : eventOffset - deltaLength;
+
+    int newSize = 0;
+    for (int i = 0; i < size; i++) {
+      int offset = snapshot.myOffsets[i];
+      final int length = snapshot.myLengths[i];
+
+      if (eventRightOffset <= offset) {
+        offset += deltaLength;
+      }
+      else if (eventOffset < offset + length) {
+        continue;
+      }
+
+      rows[newSize] = snapshot.myRows[i];
+      offsets[newSize] = offset;
+      lengths[newSize] = length;
+      newSize++;
+    }
+
+    mySnapshot = createSnapshot(rows, offsets, lengths, newSize);
+  }
+
+  /**
+   * Shifts regions located after the edited text, updates length of regions touched by typing and deletes regions touched by deletion
+   * unless the deleted text is entirely inside the region.
+   */
+  synchronized void updateUpdatingTouched(@NotNull final DocumentEvent e) {
+    final int eventOffset = e.getOffset();
+    final int deltaLength = e.getNewLength() - e.getOldLength();
+    if (deltaLength == 0) return;
+
+    final Snapshot snapshot = mySnapshot;
+    final int size = snapshot.myRows.length;
+    final int[] rows = new int[size];
+    final int[] offsets = new int[size];
+    final int[] lengths = new int[size];
+
+    int newSize = 0;
+    for (int i = 0; i < size; i++) {
+      int offset = snapshot.myOffsets[i];
+      int length = snapshot.myLengths[i];
+
+      if (deltaLength > 0) {
+        // Something was typed. Shift untouched regions, update touched.
+        if (eventOffset <= offset) {
+          offset += deltaLength;
+        }
+        else if (eventOffset < offset + length) {
+          length += deltaLength;
+        }
+      }
+      else {
+        // Some text was deleted. Shift untouched regions, delete or update touched.
+        final int eventRightOffset = eventOffset - deltaLength;
+        final int regionRightOffset = offset + length;
+
+        if (eventRightOffset <= offset) {
+          offset += deltaLength;
+        }
+        else if (offset <= eventOffset && eventRightOffset <= regionRightOffset && length != -deltaLength) {
+          length += deltaLength;
+        }
+        else if (eventOffset < regionRightOffset) {
+          continue;
+        }
+      }
+
+      rows[newSize] = snapshot.myRows[i];
+      offsets[newSize] = offset;
+      lengths[newSize] = length;
+      newSize++;
+    }
+
+    mySnapshot = createSnapshot(rows, offsets, lengths, newSize);
+  }
+
+  @NotNull
+  private static Snapshot createSnapshot(int @NotNull [] rows, int @NotNull [] offsets, int @NotNull [] lengths, int size) {
+    if (size == rows.length) {
+      return new Snapshot(rows, offsets, lengths);
+    }
+    return new Snapshot(Arrays.copyOf(rows, size), Arrays.copyOf(offsets, size), Arrays.copyOf(lengths, size));
+  }
+
+  boolean hasSameRegions(@NotNull final DartRegionTable other) {
+    final Snapshot snapshot = mySnapshot;
+    final Snapshot otherSnapshot = other.mySnapshot;
+    return Arrays.equals(snapshot.myOffsets, otherSnapshot.myOffsets) && Arrays.equals(snapshot.myLengths, otherSnapshot.myLengths);
+  }
+
+  /**
+   * View of one snapshot of the table, it doesn't reflect changes made later by {@link #updateDeletingTouched} and
+   * {@link #updateUpdatingTouched}.
+   */
+  private static final class RegionList<T extends DartRegion> extends AbstractList<T> implements RandomAccess {
+    private final DartRegionTable myTable;
+    private final Snapshot mySnapshot;
+
+    private RegionList(@NotNull final DartRegionTable table, @NotNull final Snapshot snapshot) {
+      myTable = table;
+      mySnapshot = snapshot;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public T get(int index) {
+      return (T)myTable.createRegion(mySnapshot.myOffsets[index], mySnapshot.myLengths[index], mySnapshot.myRows[index]);
+    }
+
+    @Override
+    public int size() {
+      return mySnapshot.myRows.length;
+    }
+  }
+
+  static final class HighlightTable extends DartRegionTable {
+    private final String[] myTypes;
+
+    private HighlightTable(int @NotNull [] offsets, int @NotNull [] lengths, String @NotNull [] types) {
+      super(offsets, lengths);
+      myTypes = types;
+    }
+
+    @NotNull
+    static HighlightTable create(@NotNull final DartAnalysisServerService service,
+                                 @Nullable final VirtualFile file,
+                                 @NotNull final List<? extends HighlightRegion> regions) {
+      int count = 0;
+      final int[] offsets = new int[regions.size()];
+      final int[] lengths = new int[regions.size()];
+      final String[] types = new String[regions.size()];
+      for (HighlightRegion region : regions) {
+        if (region.getLength() > 0) {
+          offsets[count] = region.getOffset();
+          lengths[count] = region.getLength();
+          types[count] = region.getType().intern();
+          count++;
+        }
+      }
+
+      service.convertOffsetsAndLengths(file, offsets, lengths, count);
+      return new HighlightTable(Arrays.copyOf(offsets, count), Arrays.copyOf(lengths, count), Arrays.copyOf(types, count));
+    }
+
+    @NotNull
+    @Override
+    DartHighlightRegion createRegion(int offset, int length, int row) {
+      return new DartHighlightRegion(offset, length, myTypes[row]);
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    @Override
+    List<DartHighlightRegion> asList() {
+      return (List<DartHighlightRegion>)super.asList();
+    }
+  }
+
+  static final class NavigationTable extends DartRegionTable {
+    // targets of the region with row i are at indices [myTargetStarts[i], myTargetStarts[i + 1])
+    private final int[] myTargetStarts;
+    private final String[] myTargetFiles;
+    private final String[] myTargetKinds;
+    private final int[] myTargetOriginalOffsets;
+    // lazily computed, -1 if not computed yet; copied on write and replaced as a whole, like the region snapshot
+    private volatile int[] myTargetConvertedOffsets;
+
+    private NavigationTable(int @NotNull [] offsets,
+                            int @NotNull [] lengths,
+                            int @NotNull [] targetStarts,
+                            String @NotNull [] targetFiles,
+                            String @NotNull [] targetKinds,
+                            int @NotNull [] targetOriginalOffsets) {
+      super(offsets, lengths);
+      myTargetStarts = targetStarts;
+      myTargetFiles = targetFiles;
+      myTargetKinds = targetKinds;
+      myTargetOriginalOffsets = targetOriginalOffsets;
+      final int[] convertedOffsets = new int[targetOriginalOffsets.length];
+      Arrays.fill(convertedOffsets, -1);
+      myTargetConvertedOffsets = convertedOffsets;
+    }
+
+    @NotNull
+    static NavigationTable create(@NotNull final DartAnalysisServerService service,
+                                  @Nullable final VirtualFile file,
+                                  @NotNull final List<? extends NavigationRegion> regions) {
+      int count = 0;
+      int targetCount = 0;
+      for (NavigationRegion region : regions) {
+        if (region.getLength() > 0) {
+          count++;
+          targetCount += region.getTargetObjects().size();
+        }
+      }
+
+      final int[] offsets = count == 0 ? EMPTY_INT_ARRAY : new int[count];
+      final int[] lengths = count == 0 ? EMPTY_INT_ARRAY : new int[count];
+      final int[] targetStarts = new int[count + 1];
+      final String[] targetFiles = new String[targetCount];
+      final String[] targetKinds = new String[targetCount];
+      final int[] targetOriginalOffsets = new int[targetCount];
+
+      int i = 0;
+      int targetIndex = 0;
+      for (NavigationRegion region : regions) {
+        if (region.getLength() > 0) {
+          offsets[i] = region.getOffset();
+          lengths[i] = region.getLength();
+          targetStarts[i] = targetIndex;
+          for (NavigationTarget target : region.getTargetObjects()) {
+            targetFiles[targetIndex] = FileUtil.toSystemIndependentName(target.getFile().trim()).intern();
+            targetKinds[targetIndex] = target.getKind().intern();
+            targetOriginalOffsets[targetIndex] = target.getOffset();
+            targetIndex++;
+          }
+          i++;
+        }
+      }
+      targetStarts[count] = targetIndex;
+
+      service.convertOffsetsAndLengths(file, offsets, lengths, count);
+      return new NavigationTable(offsets, lengths, targetStarts, targetFiles, targetKinds, targetOriginalOffsets);
+    }
+
+    @NotNull
+    @Override
+    DartNavigationRegion createRegion(int offset, int length, int row) {
+      return new DartNavigationRegion(offset, length, new TargetList(this, myTargetStarts[row], myTargetStarts[row + 1]));
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    @Override
+    List<DartNavigationRegion> asList() {
+      return (List<DartNavigationRegion>)super.asList();
+    }
+
+    /**
+     * Shifts already converted offsets of the navigation targets located in the edited file after the edited text.
+     */
+    synchronized void updateTargets(@NotNull final String filePath, @NotNull final DocumentEvent e) {
+      final int eventOffset = e.getOffset();
+      final int deltaLength = e.getNewLength() - e.getOldLength();
+      if (deltaLength == 0) return;
+
+      int[] convertedOffsets = null;
+      for (int i = 0; i < myTargetFiles.length; i++) {
+        // may be we'd better delete target touched by editing?
+        if (myTargetConvertedOffsets[i] >= eventOffset && myTargetFiles[i].equals(filePath)) {
+          if (convertedOffsets == null) {
+            convertedOffsets = myTargetConvertedOffsets.clone();
+          }
+          convertedOffsets[i] += deltaLength;
+        }
+      }
+
+      if (convertedOffsets != null) {
+        myTargetConvertedOffsets = convertedOffsets;
+      }
+    }
+
+    @NotNull
+    String getTargetFile(int targetIndex) {
+      return myTargetFiles[targetIndex];
+    }
+
+    @NotNull
+    String getTargetKind(int targetIndex) {
+      return myTargetKinds[targetIndex];
+    }
+
+    int getTargetOffset(int targetIndex, @NotNull final Project project, @Nullable final VirtualFile file) {
+      final int offset = myTargetConvertedOffsets[targetIndex];
+      if (offset != -1) return offset;
+
+      final int convertedOffset =
+        DartAnalysisServerService.getInstance(project).getConvertedOffset(file, myTargetOriginalOffsets[targetIndex]);
+      return storeTargetOffset(targetIndex, convertedOffset);
+    }
+
+    private synchronized int storeTargetOffset(int targetIndex, int convertedOffset) {
+      // updateTargets() may have stored a shifted offset meanwhile
+      final int offset = myTargetConvertedOffsets[targetIndex];
+      if (offset != -1) return offset;
+
+      final int[] convertedOffsets = myTargetConvertedOffsets.clone();
+      convertedOffsets[targetIndex] = convertedOffset;
+      myTargetConvertedOffsets = convertedOffsets;
+      return convertedOffset;
+    }
+  }
+
+  private static final class TargetList extends AbstractList<DartNavigationTarget> implements RandomAccess {
+    private final NavigationTable myTable;
+    private final int myStart;
+    private final int myEnd;
+
+    private TargetList(@NotNull final NavigationTable table, int start, int end) {
+      myTable = table;
+      myStart = start;
+      myEnd = end;
+    }
+
+    @Override
+    public DartNavigationTarget get(int index) {
+      if (index < 0 || index >= myEnd - myStart) throw new IndexOutOfBoundsException(String.valueOf(index));
+      return new DartNavigationTarget(myTable, myStart + index);
+    }
+
+    @Override
+    public int size() {
+      return myEnd - myStart;
+    }
+  }
+
+  static final class OverrideTable extends DartRegionTable {
+    private final OverriddenMember[] mySuperclassMembers;
+    private final List<OverriddenMember>[] myInterfaceMembers;
+
+    private OverrideTable(int @NotNull [] offsets,
+                          int @NotNull [] lengths,
+                          OverriddenMember @NotNull [] superclassMembers,
+                          List<OverriddenMember> @NotNull [] interfaceMembers) {
+      super(offsets, lengths);
+      mySuperclassMembers = superclassMembers;
+      myInterfaceMembers = interfaceMembers;
+    }
+
+    @NotNull
+    static OverrideTable create(@NotNull final DartAnalysisServerService service,
+                                @Nullable final VirtualFile file,
+                                @NotNull final List<? extends OverrideMember> overrides) {
+      int count = 0;
+      final int[] offsets = new int[overrides.size()];
+      final int[] lengths = new int[overrides.size()];
+      final OverriddenMember[] superclassMembers = new OverriddenMember[overrides.size()];
+      @SuppressWarnings("unchecked") final List<OverriddenMember>[] interfaceMembers = new List[overrides.size()];
+      for (OverrideMember override : overrides) {
+        if (override.getLength() > 0) {
+          offsets[count] = override.getOffset();
+          lengths[count] = override.getLength();
+          superclassMembers[count] = override.getSuperclassMember();
+          interfaceMembers[count] = override.getInterfaceMembers();
+          count++;
+        }
+      }
+
+      service.convertOffsetsAndLengths(file, offsets, lengths, count);
+      return new OverrideTable(Arrays.copyOf(offsets, count), Arrays.copyOf(lengths, count),
+                               Arrays.copyOf(superclassMembers, count), Arrays.copyOf(interfaceMembers, count));
+    }
+
+    @NotNull
+    @Override
+    DartOverrideMember createRegion(int offset, int length, int row) {
+      return new DartOverrideMember(offset, length, mySuperclassMembers[row], myInterfaceMembers[row]);
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    @Override
+    List<DartOverrideMember> asList() {
+      return (List<DartOverrideMember>)super.asList();
+    }
+  }
+
+  @NotNull
+  static DartRegionTable createImplementedClassTable(@NotNull final DartAnalysisServerService service,
+                                                     @Nullable final VirtualFile file,
+                                                     @NotNull final List<? extends ImplementedClass> implementedClasses) {
+    final int[] offsets = new int[implementedClasses.size()];
+    final int[] lengths = new int[implementedClasses.size()];
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = implementedClasses.get(i).getOffset();
+      lengths[i] = implementedClasses.get(i).getLength();
+    }
+    service.convertOffsetsAndLengths(file, offsets, lengths, offsets.length);
+    return new DartRegionTable(offsets, lengths);
+  }
+
+  @NotNull
+  static DartRegionTable createImplementedMemberTable(@NotNull final DartAnalysisServerService service,
+                                                      @Nullable final VirtualFile file,
+                                                      @NotNull final List<? extends ImplementedMember> implementedMembers) {
+    final int[] offsets = new int[implementedMembers.size()];
+    final int[] lengths = new int[implementedMembers.size()];
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = implementedMembers.get(i).getOffset();
+      lengths[i] = implementedMembers.get(i).getLength();
+    }
+    service.convertOffsetsAndLengths(file, offsets, lengths, offsets.length);
+    return new DartRegionTable(offsets, lengths);
+  }
+}
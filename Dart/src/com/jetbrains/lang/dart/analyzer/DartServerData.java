@@ -15,11 +15,14 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.search.SearchScope;
 import com.intellij.util.EventDispatcher;
-import com.intellij.util.SmartList;
+import com.jetbrains.lang.dart.analyzer.DartRegionTable.HighlightTable;
+import com.jetbrains.lang.dart.analyzer.DartRegionTable.NavigationTable;
+import com.jetbrains.lang.dart.analyzer.DartRegionTable.OverrideTable;
 import org.dartlang.analysis.server.protocol.*;
 import org.jetbrains.annotations.*;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class DartServerData {
   public interface OutlineListener extends EventListener {
@@ -31,14 +34,15 @@ public final class DartServerData {
   private final EventDispatcher<OutlineListener> myEventDispatcher = EventDispatcher.create(OutlineListener.class);
 
   private final Map<String, List<DartError>> myErrorData = Collections.synchronizedMap(new HashMap<>());
-  private final Map<String, List<DartHighlightRegion>> myHighlightData = Collections.synchronizedMap(new HashMap<>());
-  private final Map<String, List<DartNavigationRegion>> myNavigationData = Collections.synchronizedMap(new HashMap<>());
-  private final Map<String, List<DartOverrideMember>> myOverrideData = Collections.synchronizedMap(new HashMap<>());
-  private final Map<String, List<DartRegion>> myImplementedClassData = Collections.synchronizedMap(new HashMap<>());
-  private final Map<String, List<DartRegion>> myImplementedMemberData = Collections.synchronizedMap(new HashMap<>());
+  // regions are stored in compact DartRegionTables, see its javadoc
+  private final Map<String, HighlightTable> myHighlightData = new ConcurrentHashMap<>();
+  private final Map<String, NavigationTable> myNavigationData = new ConcurrentHashMap<>();
+  private final Map<String, OverrideTable> myOverrideData = new ConcurrentHashMap<>();
+  private final Map<String, DartRegionTable> myImplementedClassData = new ConcurrentHashMap<>();
+  private final Map<String, DartRegionTable> myImplementedMemberData = new ConcurrentHashMap<>();
   private final Map<String, Outline> myOutlineData = Collections.synchronizedMap(new HashMap<>());
-  private final Map<Integer, AvailableSuggestionSet> myAvailableSuggestionSetMap = Collections.synchronizedMap(new HashMap<>());
-  private final Map<String, Map<String, Map<String, Set<String>>>> myExistingImports = Collections.synchronizedMap(new HashMap<>());
+  private final Map<Integer, DartAvailableSuggestionSet> myAvailableSuggestionSetMap = Collections.synchronizedMap(new HashMap<>());
+  private final Map<String, DartExistingImports> myExistingImports = Collections.synchronizedMap(new HashMap<>());
 
   private final Set<String> myFilePathsWithUnsentChanges = Sets.newConcurrentHashSet();
 
@@ -88,35 +92,16 @@ public final class DartServerData {
   void computedHighlights(@NotNull final String filePath, final @NotNull List<? extends HighlightRegion> regions) {
     if (myFilePathsWithUnsentChanges.contains(filePath)) return;
 
-    final List<DartHighlightRegion> newRegions = new ArrayList<>(regions.size());
     final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(filePath);
-
-    for (HighlightRegion region : regions) {
-      if (region.getLength() > 0) {
-        final int offset = myService.getConvertedOffset(file, region.getOffset());
-        final int length = myService.getConvertedOffset(file, region.getOffset() + region.getLength()) - offset;
-        newRegions.add(new DartHighlightRegion(offset, length, region.getType()));
-      }
-    }
-
-    myHighlightData.put(filePath, newRegions);
+    myHighlightData.put(filePath, HighlightTable.create(myService, file, regions));
     forceFileAnnotation(file, false);
   }
 
   void computedNavigation(@NotNull final String filePath, final @NotNull List<? extends NavigationRegion> regions) {
     if (myFilePathsWithUnsentChanges.contains(filePath)) return;
 
-    final List<DartNavigationRegion> newRegions = new ArrayList<>(regions.size());
     final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(filePath);
-
-    for (NavigationRegion region : regions) {
-      if (region.getLength() > 0) {
-        final DartNavigationRegion dartNavigationRegion = createDartNavigationRegion(myService, file, region);
-        newRegions.add(dartNavigationRegion);
-      }
-    }
-
-    myNavigationData.put(filePath, newRegions);
+    myNavigationData.put(filePath, NavigationTable.create(myService, file, regions));
     forceFileAnnotation(file, true);
   }
 
@@ -134,7 +119,7 @@ public final class DartServerData {
       myAvailableSuggestionSetMap.remove(id);
     }
     for (AvailableSuggestionSet suggestionSet : changed) {
-      myAvailableSuggestionSetMap.put(suggestionSet.getId(), suggestionSet);
+      myAvailableSuggestionSetMap.put(suggestionSet.getId(), new DartAvailableSuggestionSet(suggestionSet));
     }
   }
 
@@ -144,37 +129,24 @@ public final class DartServerData {
       return;
     }
 
-    myExistingImports.put(filePathSD, existingImports);
+    myExistingImports.put(filePathSD, new DartExistingImports(existingImports));
   }
 
+  /**
+   * Regions with zero length are skipped.
+   */
   @NotNull
-  static DartNavigationRegion createDartNavigationRegion(@NotNull final DartAnalysisServerService service,
-                                                         @Nullable final VirtualFile file,
-                                                         @NotNull final NavigationRegion region) {
-    final int offset = service.getConvertedOffset(file, region.getOffset());
-    final int length = service.getConvertedOffset(file, region.getOffset() + region.getLength()) - offset;
-    final SmartList<DartNavigationTarget> targets = new SmartList<>();
-    for (NavigationTarget target : region.getTargetObjects()) {
-      targets.add(new DartNavigationTarget(target));
-    }
-    return new DartNavigationRegion(offset, length, targets);
+  static List<DartNavigationRegion> createDartNavigationRegions(@NotNull final DartAnalysisServerService service,
+                                                                @Nullable final VirtualFile file,
+                                                                @NotNull final List<? extends NavigationRegion> regions) {
+    return NavigationTable.create(service, file, regions).asList();
   }
 
   void computedOverrides(@NotNull final String filePath, final @NotNull List<? extends OverrideMember> overrides) {
     if (myFilePathsWithUnsentChanges.contains(filePath)) return;
 
-    final List<DartOverrideMember> newOverrides = new ArrayList<>(overrides.size());
     final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(filePath);
-
-    for (OverrideMember override : overrides) {
-      if (override.getLength() > 0) {
-        final int offset = myService.getConvertedOffset(file, override.getOffset());
-        final int length = myService.getConvertedOffset(file, override.getOffset() + override.getLength()) - offset;
-        newOverrides.add(new DartOverrideMember(offset, length, override.getSuperclassMember(), override.getInterfaceMembers()));
-      }
-    }
-
-    myOverrideData.put(filePath, newOverrides);
+    myOverrideData.put(filePath, OverrideTable.create(myService, file, overrides));
     forceFileAnnotation(file, false);
   }
 
@@ -185,29 +157,18 @@ public final class DartServerData {
 
     final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(filePath);
 
-    final List<DartRegion> newImplementedClasses = new ArrayList<>(implementedClasses.size());
-    for (ImplementedClass implementedClass : implementedClasses) {
-      final int offset = myService.getConvertedOffset(file, implementedClass.getOffset());
-      final int length = myService.getConvertedOffset(file, implementedClass.getOffset() + implementedClass.getLength()) - offset;
-      newImplementedClasses.add(new DartRegion(offset, length));
-    }
-
-    final List<DartRegion> newImplementedMembers = new ArrayList<>(implementedMembers.size());
-    for (ImplementedMember implementedMember : implementedMembers) {
-      final int offset = myService.getConvertedOffset(file, implementedMember.getOffset());
-      final int length = myService.getConvertedOffset(file, implementedMember.getOffset() + implementedMember.getLength()) - offset;
-      newImplementedMembers.add(new DartRegion(offset, length));
-    }
+    final DartRegionTable newImplementedClasses = DartRegionTable.createImplementedClassTable(myService, file, implementedClasses);
+    final DartRegionTable newImplementedMembers = DartRegionTable.createImplementedMemberTable(myService, file, implementedMembers);
 
     boolean hasChanges = false;
-    final List<DartRegion> oldClasses = myImplementedClassData.get(filePath);
-    if (oldClasses == null || !oldClasses.equals(newImplementedClasses)) {
+    final DartRegionTable oldClasses = myImplementedClassData.get(filePath);
+    if (oldClasses == null || !oldClasses.hasSameRegions(newImplementedClasses)) {
       hasChanges = true;
       myImplementedClassData.put(filePath, newImplementedClasses);
     }
 
-    final List<DartRegion> oldMembers = myImplementedMemberData.get(filePath);
-    if (oldMembers == null || !oldMembers.equals(newImplementedMembers)) {
+    final DartRegionTable oldMembers = myImplementedMemberData.get(filePath);
+    if (oldMembers == null || !oldMembers.hasSameRegions(newImplementedMembers)) {
       hasChanges = true;
       myImplementedMemberData.put(filePath, newImplementedMembers);
     }
@@ -239,34 +200,42 @@ public final class DartServerData {
     return errors != null ? errors : Collections.emptyList();
   }
 
+  /**
+   * Returned list is a snapshot of the regions, including the updates caused by typing so far. It doesn't reflect later typing or
+   * new highlighting data from the server, so it should be requested again after the document changes.
+   */
   @NotNull
   List<DartHighlightRegion> getHighlight(@NotNull final VirtualFile file) {
-    final List<DartHighlightRegion> regions = myHighlightData.get(file.getPath());
-    return regions != null ? regions : Collections.emptyList();
+    final HighlightTable regions = myHighlightData.get(file.getPath());
+    return regions != null ? regions.asList() : Collections.emptyList();
   }
 
+  /**
+   * Returned list is a snapshot of the regions, including the updates caused by typing so far. It doesn't reflect later typing or
+   * new navigation data from the server, so it should be requested again after the document changes.
+   */
   @NotNull
   List<DartNavigationRegion> getNavigation(@NotNull final VirtualFile file) {
-    final List<DartNavigationRegion> regions = myNavigationData.get(file.getPath());
-    return regions != null ? regions : Collections.emptyList();
+    final NavigationTable regions = myNavigationData.get(file.getPath());
+    return regions != null ? regions.asList() : Collections.emptyList();
   }
 
   @NotNull
   List<DartOverrideMember> getOverrideMembers(@NotNull final VirtualFile file) {
-    final List<DartOverrideMember> regions = myOverrideData.get(file.getPath());
-    return regions != null ? regions : Collections.emptyList();
+    final OverrideTable regions = myOverrideData.get(file.getPath());
+    return regions != null ? regions.asList() : Collections.emptyList();
   }
 
   @NotNull
   List<DartRegion> getImplementedClasses(@NotNull final VirtualFile file) {
-    final List<DartRegion> classes = myImplementedClassData.get(file.getPath());
-    return classes != null ? classes : Collections.emptyList();
+    final DartRegionTable classes = myImplementedClassData.get(file.getPath());
+    return classes != null ? Collections.unmodifiableList(classes.asList()) : Collections.emptyList();
   }
 
   @NotNull
   List<DartRegion> getImplementedMembers(@NotNull final VirtualFile file) {
-    final List<DartRegion> classes = myImplementedMemberData.get(file.getPath());
-    return classes != null ? classes : Collections.emptyList();
+    final DartRegionTable members = myImplementedMemberData.get(file.getPath());
+    return members != null ? Collections.unmodifiableList(members.asList()) : Collections.emptyList();
   }
 
   @Nullable
@@ -283,7 +252,7 @@ public final class DartServerData {
   }
 
   @Nullable
-  AvailableSuggestionSet getAvailableSuggestionSet(int id) {
+  DartAvailableSuggestionSet getAvailableSuggestionSet(int id) {
     return myAvailableSuggestionSetMap.get(id);
   }
 
@@ -299,7 +268,7 @@ public final class DartServerData {
   }
 
   @Nullable
-  Map<String, Map<String, Set<String>>> getExistingImports(@Nullable String filePathSD) {
+  DartExistingImports getExistingImports(@Nullable String filePathSD) {
     if (filePathSD == null) return null;
     return myExistingImports.get(filePathSD);
   }
@@ -373,23 +342,36 @@ public final class DartServerData {
     final String filePath = file.getPath();
     myFilePathsWithUnsentChanges.add(filePath);
 
-    boolean regionsUpdated = updateRegionsDeletingTouched(filePath, myErrorData.get(filePath), e);
+    boolean regionsUpdated = updateRegionsDeletingTouched(myErrorData.get(filePath), e);
     if (regionsUpdated) {
       myFilePathsWithInaccurateErrorInfo.add(filePath);
     }
-    updateRegionsUpdatingTouched(myHighlightData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myNavigationData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myOverrideData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myImplementedClassData.get(filePath), e);
-    updateRegionsDeletingTouched(filePath, myImplementedMemberData.get(filePath), e);
+
+    final HighlightTable highlights = myHighlightData.get(filePath);
+    if (highlights != null) {
+      highlights.updateUpdatingTouched(e);
+    }
+
+    final NavigationTable navigation = myNavigationData.get(filePath);
+    if (navigation != null) {
+      navigation.updateTargets(filePath, e);
+      navigation.updateDeletingTouched(e);
+    }
+
+    for (DartRegionTable table : Arrays.asList(myOverrideData.get(filePath),
+                                               myImplementedClassData.get(filePath),
+                                               myImplementedMemberData.get(filePath))) {
+      if (table != null) {
+        table.updateDeletingTouched(e);
+      }
+    }
     // A bit outdated outline data is not a big problem, updated data will come shortly
   }
 
   /**
    * @return {@code true} if at least one region has been updated or deleted, {@code false} if nothing done at all
    */
-  private static boolean updateRegionsDeletingTouched(@NotNull final String filePath,
-                                                      @Nullable final List<? extends DartRegion> regions,
+  private static boolean updateRegionsDeletingTouched(@Nullable final List<? extends DartRegion> regions,
                                                       @NotNull final DocumentEvent e) {
     if (regions == null) return false;
 
@@ -403,15 +385,6 @@ public final class DartServerData {
     while (iterator.hasNext()) {
       final DartRegion region = iterator.next();
 
-      if (region instanceof DartNavigationRegion) {
-        // may be we'd better delete target touched by editing?
-        for (DartNavigationTarget target : ((DartNavigationRegion)region).getTargets()) {
-          if (target.myFile.equals(filePath) && target.myConvertedOffset >= eventOffset) {
-            target.myConvertedOffset += deltaLength;
-          }
-        }
-      }
-
       if (deltaLength > 0) {
         // Something was typed. Shift untouched regions, delete touched.
         if (eventOffset <= region.myOffset) {
@@ -441,44 +414,6 @@ public final class DartServerData {
     return regionUpdated;
   }
 
-  private static void updateRegionsUpdatingTouched(@Nullable final List<? extends DartRegion> regions,
-                                                   @NotNull final DocumentEvent e) {
-    if (regions == null) return;
-
-    final int eventOffset = e.getOffset();
-    final int deltaLength = e.getNewLength() - e.getOldLength();
-
-    final Iterator<? extends DartRegion> iterator = regions.iterator();
-    while (iterator.hasNext()) {
-      final DartRegion region = iterator.next();
-
-      if (deltaLength > 0) {
-        // Something was typed. Shift untouched regions, update touched.
-        if (eventOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (eventOffset < region.myOffset + region.myLength) {
-          region.myLength += deltaLength;
-        }
-      }
-      else if (deltaLength < 0) {
-        // Some text was deleted. Shift untouched regions, delete or update touched.
-        final int eventRightOffset = eventOffset - deltaLength;
-        final int regionRightOffset = region.myOffset + region.myLength;
-
-        if (eventRightOffset <= region.myOffset) {
-          region.myOffset += deltaLength;
-        }
-        else if (region.myOffset <= eventOffset && eventRightOffset <= regionRightOffset && region.myLength != -deltaLength) {
-          region.myLength += deltaLength;
-        }
-        else if (eventOffset < regionRightOffset) {
-          iterator.remove();
-        }
-      }
-    }
-  }
-
   public static class DartRegion {
     protected int myOffset;
     protected int myLength;
@@ -510,9 +445,12 @@ public final class DartServerData {
   public static final class DartHighlightRegion extends DartRegion {
     private final String type;
 
-    private DartHighlightRegion(final int offset, final int length, @NotNull final String type) {
+    /**
+     * @param type interned highlight type
+     */
+    DartHighlightRegion(final int offset, final int length, @NotNull final String type) {
       super(offset, length);
-      this.type = type.intern();
+      this.type = type;
     }
 
     public String getType() {
@@ -600,32 +538,28 @@ public final class DartServerData {
     }
   }
 
+  /**
+   * A view of the navigation target data stored in {@link NavigationTable}.
+   */
   public static final class DartNavigationTarget {
-    private final String myFile;
-    private final int myOriginalOffset;
-    private final String myKind;
+    private final NavigationTable myTable;
+    private final int myIndex;
 
-    private int myConvertedOffset = -1;
-
-    private DartNavigationTarget(@NotNull final NavigationTarget target) {
-      myFile = FileUtil.toSystemIndependentName(target.getFile().trim()).intern();
-      myOriginalOffset = target.getOffset();
-      myKind = target.getKind().intern();
+    DartNavigationTarget(@NotNull final NavigationTable table, final int index) {
+      myTable = table;
+      myIndex = index;
     }
 
     public String getFile() {
-      return myFile;
+      return myTable.getTargetFile(myIndex);
     }
 
     public int getOffset(@NotNull final Project project, @Nullable final VirtualFile file) {
-      if (myConvertedOffset == -1) {
-        myConvertedOffset = DartAnalysisServerService.getInstance(project).getConvertedOffset(file, myOriginalOffset);
-      }
-      return myConvertedOffset;
+      return myTable.getTargetOffset(myIndex, project, file);
     }
 
     public String getKind() {
-      return myKind;
+      return myTable.getTargetKind(myIndex);
     }
   }
 
@@ -633,7 +567,7 @@ public final class DartServerData {
     @Nullable private final OverriddenMember mySuperclassMember;
     @Nullable private final List<OverriddenMember> myInterfaceMembers;
 
-    private DartOverrideMember(final int offset,
+    DartOverrideMember(final int offset,
                                final int length,
                                @Nullable final OverriddenMember superclassMember,
                                @Nullable final List<OverriddenMember> interfaceMembers) {
@@ -1,78 +1,179 @@
-// Copyright 2000-2019 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package com.jetbrains.lang.dart.coverage;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.*;
+import java.util.function.Function;
 
-public class DartCoverageData {
-  @Nullable private List<DartFileCoverageData> coverage;
+/**
+ * Line hits read from the coverage JSON: {@code {"coverage": [{"source": uri, "hits": [line, count, line, count, ...]}, ...]}}.
+ * <p>
+ * The JSON is read as a stream, the hits of all entries with the same source are merged into a single int array
+ * indexed by line number, so memory is proportional to the size of the covered files, not to the size of the JSON.
+ */
+final class DartCoverageData {
+  private static final int NOT_COVERABLE = -1;
 
-  @Nullable
-  public List<DartFileCoverageData> getCoverage() {
-    return coverage;
-  }
+  private final Map<String, LineHits> myPathToHits = new LinkedHashMap<>();
+  // null values for the sources that are skipped
+  private final Map<String, LineHits> mySourceToHits = new HashMap<>();
+  private final Function<String, String> mySourceToPath;
+
+  // line, count pairs of the entry being read
+  private int[] myEntryHits = new int[64];
+  private int myEntryHitsSize;
 
-  public void setCoverage(@Nullable List<DartFileCoverageData> coverage) {
-    this.coverage = coverage;
+  private DartCoverageData(@NotNull Function<String, String> sourceToPath) {
+    mySourceToPath = sourceToPath;
   }
 
+  /**
+   * @param sourceToPath returns the path of the file for the source URI, or {@code null} if the source is not interesting;
+   *                     called once per source
+   * @param onEntry      called before reading every entry of the coverage list, e.g. to check cancellation and report progress
+   * @return merged hits keyed by file path
+   */
   @NotNull
-  public Map<String, SortedMap<Integer, Integer>> getMergedDartFileCoverageData() {
-    Map<String, SortedMap<Integer, Integer>> mergedCoverageData = new HashMap<>();
-    List<DartFileCoverageData> coverageData = getCoverage();
-    if (coverageData != null) {
-      for (DartFileCoverageData item : coverageData) {
-        String source = item.getSource();
-        if (source == null) {
-          continue;
-        }
-        if (!mergedCoverageData.containsKey(source)) {
-          mergedCoverageData.put(source, new TreeMap<>());
+  static Map<String, LineHits> readMergedLineHits(@NotNull Reader reader,
+                                                  @NotNull Function<String, String> sourceToPath,
+                                                  @NotNull Runnable onEntry) throws IOException {
+    DartCoverageData data = new DartCoverageData(sourceToPath);
+    JsonReader json = new JsonReader(reader);
+    json.beginObject();
+    while (json.hasNext()) {
+      if ("coverage".equals(json.nextName()) && json.peek() == JsonToken.BEGIN_ARRAY) {
+        json.beginArray();
+        while (json.hasNext()) {
+          onEntry.run();
+          data.readEntry(json);
         }
+        json.endArray();
+      }
+      else {
+        json.skipValue();
+      }
+    }
+    json.endObject();
+    return data.myPathToHits;
+  }
 
-        SortedMap<Integer, Integer> fileData = mergedCoverageData.get(source);
-        List<Integer> hits = item.getHits();
-        if (hits == null) {
-          continue;
-        }
-        for (int i = 0; i < hits.size(); i += 2) {
-          Integer lineNumber = hits.get(i);
-          Integer hitCount = hits.get(i + 1);
-          if (!fileData.containsKey(lineNumber)) {
-            fileData.put(lineNumber, 0);
-          }
+  private void readEntry(@NotNull JsonReader json) throws IOException {
+    boolean hasSource = false;
+    LineHits lineHits = null;
+    // the hits listed before the source are kept until the source is known
+    myEntryHitsSize = 0;
 
-          fileData.put(lineNumber, fileData.get(lineNumber) + hitCount);
+    json.beginObject();
+    while (json.hasNext()) {
+      String name = json.nextName();
+      if ("source".equals(name) && json.peek() == JsonToken.STRING) {
+        hasSource = true;
+        lineHits = getLineHits(json.nextString());
+        if (lineHits != null) {
+          for (int i = 0; i < myEntryHitsSize; i += 2) {
+            lineHits.add(myEntryHits[i], myEntryHits[i + 1]);
+          }
         }
+        myEntryHitsSize = 0;
+      }
+      else if ("hits".equals(name) && json.peek() == JsonToken.BEGIN_ARRAY && (!hasSource || lineHits != null)) {
+        readHits(json, lineHits);
+      }
+      else {
+        json.skipValue();
       }
     }
-
-    return mergedCoverageData;
+    json.endObject();
   }
-}
-
-
-class DartFileCoverageData {
-  @Nullable private String source;
-  @Nullable private List<Integer> hits;
 
   @Nullable
-  public String getSource() {
-    return source;
+  private LineHits getLineHits(@NotNull String source) {
+    if (mySourceToHits.containsKey(source)) {
+      return mySourceToHits.get(source);
+    }
+    String path = mySourceToPath.apply(source);
+    LineHits lineHits = path == null ? null : myPathToHits.computeIfAbsent(path, p -> new LineHits());
+    mySourceToHits.put(source, lineHits);
+    return lineHits;
   }
 
-  public void setSource(@Nullable String source) {
-    this.source = source;
-  }
+  /**
+   * The line is either a number or a {@code "first-last"} range of lines with the same count.
+   *
+   * @param lineHits the hits of the source, or {@code null} to keep the hits until the source is read
+   */
+  private void readHits(@NotNull JsonReader json, @Nullable LineHits lineHits) throws IOException {
+    json.beginArray();
+    while (json.hasNext()) {
+      int first;
+      int last;
+      if (json.peek() == JsonToken.STRING) {
+        String range = json.nextString();
+        int dash = range.indexOf('-');
+        try {
+          first = Integer.parseInt(dash < 0 ? range : range.substring(0, dash));
+          last = dash < 0 ? first : Integer.parseInt(range.substring(dash + 1));
+        }
+        catch (NumberFormatException e) {
+          throw new MalformedJsonException("Unexpected line range: " + range);
+        }
+      }
+      else {
+        first = last = json.nextInt();
+      }
+      if (!json.hasNext()) {
+        throw new MalformedJsonException("No hit count for line " + first);
+      }
+      int count = json.nextInt();
 
-  @Nullable
-  public List<Integer> getHits() {
-    return hits;
+      for (int line = Math.max(first, 0); line <= last; line++) {
+        if (lineHits != null) {
+          lineHits.add(line, count);
+          continue;
+        }
+        if (myEntryHitsSize == myEntryHits.length) {
+          myEntryHits = Arrays.copyOf(myEntryHits, myEntryHitsSize * 2);
+        }
+        myEntryHits[myEntryHitsSize++] = line;
+        myEntryHits[myEntryHitsSize++] = count;
+      }
+    }
+    json.endArray();
   }
 
-  public void setHits(@Nullable List<Integer> hits) {
-    this.hits = hits;
+  static final class LineHits {
+    private int[] myHits = new int[0];
+    private int myLastLine = -1;
+
+    private void add(int line, int count) {
+      if (line >= myHits.length) {
+        int oldLength = myHits.length;
+        myHits = Arrays.copyOf(myHits, Math.max(line + 1, oldLength * 2));
+        Arrays.fill(myHits, oldLength, myHits.length, NOT_COVERABLE);
+      }
+      myHits[line] = myHits[line] == NOT_COVERABLE ? count : myHits[line] + count;
+      myLastLine = Math.max(myLastLine, line);
+    }
+
+    /**
+     * @return the largest line number with hits or {@code -1}
+     */
+    int getLastLine() {
+      return myLastLine;
+    }
+
+    /**
+     * @return the merged count or {@code -1} if there are no hits for the line
+     */
+    int getHits(int line) {
+      return line < myHits.length ? myHits[line] : NOT_COVERABLE;
+    }
   }
-}
\ No newline at end of file
+}
@@ -1,18 +1,20 @@
 // Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
 package com.jetbrains.lang.dart.coverage;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
 import com.intellij.coverage.CoverageEngine;
 import com.intellij.coverage.CoverageRunner;
 import com.intellij.coverage.CoverageSuite;
 import com.intellij.execution.process.ProcessHandler;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.progress.ProgressIndicator;
 import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
 import com.intellij.openapi.util.Ref;
-import com.intellij.rt.coverage.data.ClassData;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.rt.coverage.data.LineData;
 import com.intellij.rt.coverage.data.ProjectData;
 import com.jetbrains.lang.dart.DartBundle;
@@ -20,13 +22,10 @@ import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.SortedMap;
 
 public class DartCoverageRunner extends CoverageRunner {
   private static final String ID = "DartCoverageRunner";
@@ -84,40 +83,51 @@ public class DartCoverageRunner extends CoverageRunner {
     }
 
     final ProjectData projectData = new ProjectData();
+    final ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+    if (indicator != null) {
+      indicator.setIndeterminate(false);
+    }
 
-    try {
-      DartCoverageData data =
-        new Gson().fromJson(new BufferedReader(new FileReader(sessionDataFile, StandardCharsets.UTF_8)), DartCoverageData.class);
-      if (data == null) {
-        LOG.warn("Coverage file does not contain valid data.");
-        return null;
-      }
-
-      for (Map.Entry<String, SortedMap<Integer, Integer>> entry : data.getMergedDartFileCoverageData().entrySet()) {
+    try (FileInputStream inputStream = new FileInputStream(sessionDataFile)) {
+      final FileChannel channel = inputStream.getChannel();
+      final long length = Math.max(channel.size(), 1);
+      final Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+
+      final Map<String, DartCoverageData.LineHits> pathToHits = DartCoverageData.readMergedLineHits(
+        reader,
+        uri -> getProjectFileForUri(project, contextId, uri),
+        () -> {
+          ProgressManager.checkCanceled();
+          if (indicator != null) {
+            try {
+              // the buffered reader is ahead of the parser by at most the size of its buffer
+              indicator.setFraction((double)channel.position() / length);
+            }
+            catch (IOException ignore) {
+            }
+          }
+        });
+
+      for (Map.Entry<String, DartCoverageData.LineHits> entry : pathToHits.entrySet()) {
         ProgressManager.checkCanceled();
 
-        String filePath = getFileForUri(project, contextId, entry.getKey());
-        if (filePath == null) {
-          // File is not found.
-          continue;
-        }
-        SortedMap<Integer, Integer> lineHits = entry.getValue();
-        ClassData classData = projectData.getOrCreateClassData(filePath);
-        if (lineHits.size() == 0) {
-          classData.setLines(new LineData[1]);
-          continue;
-        }
-        LineData[] lines = new LineData[lineHits.lastKey() + 1];
-        for (Map.Entry<Integer, Integer> hit : lineHits.entrySet()) {
-          LineData lineData = new LineData(hit.getKey(), null);
-          lineData.setHits(hit.getValue());
-          lines[hit.getKey()] = lineData;
+        DartCoverageData.LineHits lineHits = entry.getValue();
+        LineData[] lines = new LineData[Math.max(lineHits.getLastLine() + 1, 1)];
+        for (int line = 0; line <= lineHits.getLastLine(); line++) {
+          int hits = lineHits.getHits(line);
+          if (hits < 0) continue;
+
+          LineData lineData = new LineData(line, null);
+          lineData.setHits(hits);
+          lines[line] = lineData;
         }
-        classData.setLines(lines);
+        projectData.getOrCreateClassData(entry.getKey()).setLines(lines);
       }
     }
-    catch (JsonSyntaxException | IOException e) {
-      LOG.warn(e);
+    catch (IOException | IllegalStateException | NumberFormatException e) {
+      // JsonReader throws IllegalStateException for unexpected tokens and NumberFormatException for numbers that are not int
+      LOG.warn("Coverage file does not contain valid data: " + e.getMessage());
+      return null;
     }
     finally {
       DartAnalysisServerService.getInstance(project).execution_deleteContext(contextId);
@@ -126,14 +136,26 @@ public class DartCoverageRunner extends CoverageRunner {
     return projectData;
   }
 
+  /**
+   * @return the path of the file for the URI, or {@code null} if the file is not found or is not in the project content
+   */
   @Nullable
-  private static String getFileForUri(@NotNull final Project project, @NotNull final String contextId, @NotNull final String uri) {
-    if (uri.startsWith("dart:_") || uri.startsWith("dart:") && uri.contains("-patch/")) {
-      // dart:_builtin or dart:core-patch/core_patch.dart
+  private static String getProjectFileForUri(@NotNull final Project project, @NotNull final String contextId, @NotNull final String uri) {
+    if (uri.startsWith("dart:")) {
+      // dart:_builtin, dart:core-patch/core_patch.dart or SDK libraries
+      return null;
+    }
+
+    final String filePath = DartAnalysisServerService.getInstance(project).execution_mapUri(contextId, null, uri);
+    if (filePath == null) {
       return null;
     }
 
-    return DartAnalysisServerService.getInstance(project).execution_mapUri(contextId, null, uri);
+    final boolean inContent = ReadAction.compute(() -> {
+      final VirtualFile file = LocalFileSystem.getInstance().findFileByPath(filePath);
+      return file != null && ProjectFileIndex.getInstance(project).isInContent(file);
+    });
+    return inContent ? filePath : null;
   }
 
   @NotNull
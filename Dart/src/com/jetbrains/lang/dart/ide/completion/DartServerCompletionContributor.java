@@ -38,6 +38,8 @@ import com.intellij.util.PlatformIcons;
 import com.intellij.util.ProcessingContext;
 import com.jetbrains.lang.dart.DartLanguage;
 import com.jetbrains.lang.dart.analyzer.DartAnalysisServerService;
+import com.jetbrains.lang.dart.analyzer.DartAvailableSuggestionSet;
+import com.jetbrains.lang.dart.analyzer.DartExistingImports;
 import com.jetbrains.lang.dart.assists.AssistUtils;
 import com.jetbrains.lang.dart.assists.DartSourceEditException;
 import com.jetbrains.lang.dart.ide.codeInsight.DartCodeInsightSettings;
@@ -146,43 +148,34 @@ public class DartServerCompletionContributor extends CompletionContributor {
                    return;
                  }
 
-                 final AvailableSuggestionSet suggestionSet = das.getAvailableSuggestionSet(includedSet.getId());
+                 final DartAvailableSuggestionSet suggestionSet = das.getAvailableSuggestionSet(includedSet.getId());
                  if (suggestionSet == null) {
                    return;
                  }
 
-                 Map<String, Map<String, Set<String>>> existingImports = das.getExistingImports(libraryFilePathSD);
-                 for (AvailableSuggestion suggestion : suggestionSet.getItems()) {
-                   final String kind = suggestion.getElement().getKind();
-                   if (!includedKinds.contains(kind)) {
-                     continue;
+                 final PrefixMatcher prefixMatcher = resultSet.getPrefixMatcher();
+                 final DartExistingImports existingImports = das.getExistingImports(libraryFilePathSD);
+                 final String displayUri = includedSet.getDisplayUri() != null ? includedSet.getDisplayUri() : suggestionSet.getUri();
+                 suggestionSet.processSuggestions(includedKinds, suggestion -> {
+                   // cheap check first, the lookup element is created only for the suggestions that will be shown
+                   if (!matchesLookupStrings(prefixMatcher, suggestion.getLabel())) {
+                     return;
                    }
 
-                   Set<String> importedLibraries = new HashSet<>();
-                   if (existingImports != null) {
-                     for (Map.Entry<String, Map<String, Set<String>>> entry : existingImports.entrySet()) {
-                       String importedLibraryUri = entry.getKey();
-                       Map<String, Set<String>> importedLibrary = entry.getValue();
-                       Set<String> names = importedLibrary.get(suggestion.getDeclaringLibraryUri());
-                       if (names != null && names.contains(suggestion.getLabel())) {
-                         importedLibraries.add(importedLibraryUri);
-                       }
-                     }
-                   }
-
-                   if (!importedLibraries.isEmpty() && !importedLibraries.contains(suggestionSet.getUri())) {
+                   final List<String> importedLibraries =
+                     existingImports == null ? null : existingImports.getImportedLibraries(suggestion.getDeclaringLibraryUri(), suggestion.getLabel());
+                   if (importedLibraries != null && !importedLibraries.contains(suggestionSet.getUri())) {
                      // If some library exports this label but the current suggestion set does not, we should filter.
-                     continue;
+                     return;
                    }
 
                    CompletionSuggestion completionSuggestion =
                      createCompletionSuggestionFromAvailableSuggestion(suggestion, includedSet.getRelevance(), includedRelevanceTags);
-                   String displayUri = includedSet.getDisplayUri() != null ? includedSet.getDisplayUri() : suggestionSet.getUri();
                    LookupElementBuilder lookupElement =
                      createLookupElement(project, completionSuggestion, suggestionSet.getId(), targetFile, true, displayUri);
 
                    resultSet.addElement(lookupElement);
-                 }
+                 });
                });
              }
            });
@@ -361,6 +354,29 @@ public class DartServerCompletionContributor extends CompletionContributor {
     return base;
   }
 
+  /**
+   * 'path.Context' should match 'Conte' prefix
+   */
+  @Nullable
+  private static String getMemberLookupString(@NotNull String lookupString) {
+    final int dotIndex = lookupString.indexOf('.');
+    if (dotIndex > 0 && dotIndex < lookupString.length() - 1 &&
+        StringUtil.isJavaIdentifier(lookupString.substring(0, dotIndex)) &&
+        StringUtil.isJavaIdentifier(lookupString.substring(dotIndex + 1))) {
+      return lookupString.substring(dotIndex + 1);
+    }
+    return null;
+  }
+
+  /**
+   * Same check as {@link CompletionResultSet#addElement} does for the lookup element created by {@link #createLookupElement}.
+   */
+  private static boolean matchesLookupStrings(@NotNull PrefixMatcher prefixMatcher, @NotNull String lookupString) {
+    if (prefixMatcher.prefixMatches(lookupString)) return true;
+    final String memberLookupString = getMemberLookupString(lookupString);
+    return memberLookupString != null && prefixMatcher.prefixMatches(memberLookupString);
+  }
+
   @NotNull
   public static LookupElementBuilder createLookupElement(@NotNull final Project project, @NotNull final CompletionSuggestion suggestion) {
     return createLookupElement(project, suggestion, null, null, false, null);
@@ -389,12 +405,9 @@ public class DartServerCompletionContributor extends CompletionContributor {
       lookup = lookup.bold();
     }
 
-    final int dotIndex = lookupString.indexOf('.');
-    if (dotIndex > 0 && dotIndex < lookupString.length() - 1 &&
-        StringUtil.isJavaIdentifier(lookupString.substring(0, dotIndex)) &&
-        StringUtil.isJavaIdentifier(lookupString.substring(dotIndex + 1))) {
-      // 'path.Context' should match 'Conte' prefix
-      lookup = lookup.withLookupString(lookupString.substring(dotIndex + 1));
+    final String memberLookupString = getMemberLookupString(lookupString);
+    if (memberLookupString != null) {
+      lookup = lookup.withLookupString(memberLookupString);
     }
 
     boolean shouldSetSelection = true;
@@ -64,6 +64,8 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   // Kind of hack to keep a reference to the live collection used in a super class, but it allows improving performance greatly.
   // Having it in hand we can do bulk rows removal with a single fireTableRowsDeleted() call afterwards
   private final List<DartProblem> myItems = new ArrayList<>();
+  // number of rows per file, system-independent path is the key
+  private final Map<String, Integer> myProblemCountByFile = new HashMap<>();
 
   private RowSorter.SortKey mySortKey = new RowSorter.SortKey(1, SortOrder.ASCENDING);
 
@@ -144,27 +146,13 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
     return false;
   }
 
-  private void removeRows(int firstRow, int lastRow) {
-    assert lastRow >= firstRow;
-
-    for (int i = lastRow; i >= firstRow; i--) {
-      DartProblem removed = myItems.remove(i);
-
-      if (AnalysisErrorSeverity.ERROR.equals(removed.getSeverity())) myErrorCount--;
-      if (AnalysisErrorSeverity.WARNING.equals(removed.getSeverity())) myWarningCount--;
-      if (AnalysisErrorSeverity.INFO.equals(removed.getSeverity())) myHintCount--;
-      updateProblemsCountAfterFilter(removed, -1);
-    }
-
-    fireTableRowsDeleted(firstRow, lastRow);
-  }
-
   void removeAll() {
     int rowCount = getRowCount();
     if (rowCount > 0) {
       myItems.clear();
       fireTableRowsDeleted(0, rowCount - 1);
     }
+    myProblemCountByFile.clear();
 
     myErrorCount = 0;
     myWarningCount = 0;
@@ -181,75 +169,58 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
   @Nullable
   DartProblem setProblemsAndReturnReplacementForSelection(@NotNull Map<String, List<? extends AnalysisError>> filePathToErrors,
                                                           @Nullable DartProblem selectedProblem) {
-    boolean selectedProblemRemoved = removeRowsForFilesInSet(filePathToErrors.keySet(), selectedProblem);
-    return addErrorsAndReturnReplacementForSelection(filePathToErrors, selectedProblemRemoved ? selectedProblem : null);
+    RemovalResult removalResult = removeRowsForFilesInSet(filePathToErrors.keySet(), selectedProblem);
+    DartProblem replacement =
+      addErrorsAndReturnReplacementForSelection(filePathToErrors, removalResult == RemovalResult.SELECTION_REMOVED ? selectedProblem : null);
+    // the table drops the selection when all rows change
+    return replacement == null && removalResult == RemovalResult.ALL_ROWS_CHANGED ? selectedProblem : replacement;
   }
 
-  private boolean removeRowsForFilesInSet(@NotNull Set<String> filePaths, @Nullable DartProblem selectedProblem) {
-    // Looks for regions in table items that should be removed and removes them.
-    // For performance reasons we try to call removeRows() as rare as possible, that means with regions as big as possible.
-    // Logic is based on the fact that all errors for each particular file are stored continuously in the myItems model
+  private enum RemovalResult {NOTHING_REMOVED, ROWS_REMOVED, ALL_ROWS_CHANGED, SELECTION_REMOVED}
 
-    boolean selectedProblemRemoved = false;
+  private @NotNull RemovalResult removeRowsForFilesInSet(@NotNull Set<String> filePaths, @Nullable DartProblem selectedProblem) {
+    // Most of the reported files usually have no rows in the table, the per-file counts let skip them without looking at the rows.
+    // The rows of the other files are removed in a single pass, then the table is notified once.
+    int rowsToRemove = 0;
+    for (String filePath : filePaths) {
+      Integer count = myProblemCountByFile.remove(filePath);
+      if (count != null) rowsToRemove += count;
+    }
+    if (rowsToRemove == 0) return RemovalResult.NOTHING_REMOVED;
 
-    int matchedFilesCount = 0;
+    boolean selectedProblemRemoved = false;
+    int firstRemovedRow = -1;
+    int lastRemovedRow = -1;
+    int rangeCount = 0;
 
-    for (int i = getRowCount() - 1; i >= 0; i--) {
-      final DartProblem problem = getItem(i);
+    int newSize = 0;
+    for (int i = 0; i < myItems.size(); i++) {
+      DartProblem problem = myItems.get(i);
       if (filePaths.contains(problem.getSystemIndependentPath())) {
-        matchedFilesCount++;
-        final int lastRowToDelete = i;
-
-        if (problem == selectedProblem) {
-          selectedProblemRemoved = true;
-        }
-
-        DartProblem lastProblemForCurrentFile = problem;
-
-        int j = i - 1;
-        while (j >= 0) {
-          final DartProblem previousProblem = getItem(j);
-
-          if (previousProblem.getSystemIndependentPath().equals(lastProblemForCurrentFile.getSystemIndependentPath())) {
-            // previousProblem should be removed from the table as well
-            j--;
-
-            if (previousProblem == selectedProblem) {
-              selectedProblemRemoved = true;
-            }
-
-            continue;
-          }
-
-          if (filePaths.contains(previousProblem.getSystemIndependentPath())) {
-            matchedFilesCount++;
-            // continue iterating the table because we met a range of problems for another file that also should be removed
-            lastProblemForCurrentFile = previousProblem;
-            j--;
-
-            if (previousProblem == selectedProblem) {
-              selectedProblemRemoved = true;
-            }
-
-            continue;
-          }
-
-          break;
-        }
-
-        final int firstRowToDelete = j + 1;
-        removeRows(firstRowToDelete, lastRowToDelete);
-
-        if (matchedFilesCount == filePaths.size()) {
-          break;
-        }
-
-        //noinspection AssignmentToForLoopParameter
-        i = j + 1; // rewind according to the amount of removed rows
+        if (problem == selectedProblem) selectedProblemRemoved = true;
+        if (lastRemovedRow != i - 1 || rangeCount == 0) rangeCount++;
+        if (firstRemovedRow < 0) firstRemovedRow = i;
+        lastRemovedRow = i;
+
+        if (AnalysisErrorSeverity.ERROR.equals(problem.getSeverity())) myErrorCount--;
+        if (AnalysisErrorSeverity.WARNING.equals(problem.getSeverity())) myWarningCount--;
+        if (AnalysisErrorSeverity.INFO.equals(problem.getSeverity())) myHintCount--;
+        updateProblemsCountAfterFilter(problem, -1);
+      }
+      else {
+        myItems.set(newSize++, problem);
       }
     }
+    myItems.subList(newSize, myItems.size()).clear();
 
-    return selectedProblemRemoved;
+    if (rangeCount == 1) {
+      fireTableRowsDeleted(firstRemovedRow, lastRemovedRow);
+      return selectedProblemRemoved ? RemovalResult.SELECTION_REMOVED : RemovalResult.ROWS_REMOVED;
+    }
+
+    // one full re-sort instead of updating the row sorter for each removed range
+    fireTableDataChanged();
+    return selectedProblemRemoved ? RemovalResult.SELECTION_REMOVED : RemovalResult.ALL_ROWS_CHANGED;
   }
 
   private @Nullable DartProblem addErrorsAndReturnReplacementForSelection(@NotNull Map<String, List<? extends AnalysisError>> filePathToErrors,
@@ -265,6 +236,10 @@ class DartProblemsTableModel extends ListTableModel<DartProblem> {
                                          ProjectFileIndex.getInstance(myProject).isInContent(vFile));
       List<? extends AnalysisError> errors = fileOk ? entry.getValue() : AnalysisError.EMPTY_LIST;
 
+      if (!errors.isEmpty()) {
+        myProblemCountByFile.merge(filePath, errors.size(), Integer::sum);
+      }
+
       for (AnalysisError analysisError : errors) {
         DartProblem problem = new DartProblem(myProject, analysisError);
         problemsToAdd.add(problem);
@@ -513,6 +513,7 @@ public class DartVmServiceDebugProcess extends XDebugProcess {
 
   public void isolateResumed(@NotNull IsolateRef isolateRef) {
     mySuspendedIsolateIds.remove(isolateRef.getId());
+    myIsolatesInfo.invalidateObjectCache(isolateRef.getId());
   }
 
   public void isolateExit(@NotNull IsolateRef isolateRef) {
@@ -20,6 +20,8 @@ public class IsolatesInfo {
     private boolean breakpointsSet = false;
     private boolean shouldInitialResume = false;
     private CompletableFuture<Isolate> myCachedIsolate;
+    // objects requested since the isolate was paused, object ids are not stable across resumes
+    private final Map<String, VmServiceWrapper.CachedObject> myCachedObjects = new THashMap<>();
 
     private IsolateInfo(@NotNull final String isolateId, @NotNull final String isolateName) {
       myIsolateId = isolateId;
@@ -28,6 +30,7 @@ public class IsolatesInfo {
 
     void invalidateCache() {
       myCachedIsolate = null;
+      myCachedObjects.clear();
     }
 
     CompletableFuture<Isolate> getCachedIsolate() {
@@ -114,6 +117,35 @@ public class IsolatesInfo {
     return cachedIsolate;
   }
 
+  /**
+   * @param key object id, or object id with the requested range for collections
+   * @return the object requested since the isolate was paused, or the new one from the supplier
+   */
+  @NotNull
+  synchronized VmServiceWrapper.CachedObject getCachedObject(@NotNull String isolateId,
+                                                             @NotNull String key,
+                                                             @NotNull Supplier<VmServiceWrapper.CachedObject> objectSupplier) {
+    IsolateInfo info = myIsolateIdToInfoMap.get(isolateId);
+    if (info == null) {
+      return objectSupplier.get();
+    }
+    return info.myCachedObjects.computeIfAbsent(key, k -> objectSupplier.get());
+  }
+
+  synchronized void removeCachedObject(@NotNull String isolateId, @NotNull String key, @NotNull VmServiceWrapper.CachedObject object) {
+    IsolateInfo info = myIsolateIdToInfoMap.get(isolateId);
+    if (info != null) {
+      info.myCachedObjects.remove(key, object);
+    }
+  }
+
+  public synchronized void invalidateObjectCache(@NotNull String isolateId) {
+    IsolateInfo info = myIsolateIdToInfoMap.get(isolateId);
+    if (info != null) {
+      info.myCachedObjects.clear();
+    }
+  }
+
   public synchronized Collection<IsolateInfo> getIsolateInfos() {
     return new ArrayList<>(myIsolateIdToInfoMap.values());
   }
@@ -32,6 +32,7 @@ import org.jetbrains.annotations.Nullable;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class VmServiceWrapper implements Disposable {
 
@@ -356,6 +357,7 @@ public class VmServiceWrapper implements Disposable {
   }
 
   public void resumeIsolate(@NotNull String isolateId, @Nullable StepOption stepOption) {
+    myIsolatesInfo.invalidateObjectCache(isolateId);
     addRequest(() -> {
       myLatestStep = stepOption;
       myVmService.resume(isolateId, stepOption, null, VmServiceConsumers.EMPTY_SUCCESS_CONSUMER);
@@ -375,6 +377,7 @@ public class VmServiceWrapper implements Disposable {
    * function, so frameIndex must be at least 1.
    */
   public void dropFrame(@NotNull String isolateId, int frameIndex) {
+    myIsolatesInfo.invalidateObjectCache(isolateId);
     addRequest(() -> {
       myLatestStep = StepOption.Rewind;
       myVmService.resume(isolateId, StepOption.Rewind, frameIndex, new SuccessConsumer() {
@@ -475,7 +478,7 @@ public class VmServiceWrapper implements Disposable {
   }
 
   public void getObject(@NotNull String isolateId, @NotNull String objectId, @NotNull GetObjectConsumer consumer) {
-    addRequest(() -> myVmService.getObject(isolateId, objectId, consumer));
+    getCachedObject(isolateId, objectId, c -> myVmService.getObject(isolateId, objectId, c), consumer);
   }
 
   public void getCollectionObject(@NotNull String isolateId,
@@ -483,36 +486,61 @@ public class VmServiceWrapper implements Disposable {
                                   int offset,
                                   int count,
                                   @NotNull GetObjectConsumer consumer) {
-    addRequest(() -> myVmService.getObject(isolateId, objectId, offset, count, consumer));
+    getCachedObject(isolateId, objectId + "[" + offset + ":" + count + "]",
+                    c -> myVmService.getObject(isolateId, objectId, offset, count, c), consumer);
+  }
+
+  /**
+   * While the isolate is paused the objects are requested once and shared by all consumers until the isolate is resumed.
+   */
+  private void getCachedObject(@NotNull String isolateId,
+                               @NotNull String key,
+                               @NotNull Consumer<GetObjectConsumer> request,
+                               @NotNull GetObjectConsumer consumer) {
+    if (!myDebugProcess.isIsolateSuspended(isolateId)) {
+      addRequest(() -> request.accept(consumer));
+      return;
+    }
+
+    final CachedObject cachedObject = myIsolatesInfo.getCachedObject(isolateId, key, () -> new CachedObject(
+      failed -> myIsolatesInfo.removeCachedObject(isolateId, key, failed)));
+    if (cachedObject.startRequest()) {
+      addRequest(() -> request.accept(cachedObject));
+    }
+    cachedObject.addConsumer(consumer);
   }
 
   public void evaluateInFrame(@NotNull String isolateId,
                               @NotNull Frame vmFrame,
                               @NotNull String expression,
                               @NotNull XDebuggerEvaluator.XEvaluationCallback callback) {
-    addRequest(() -> myVmService.evaluateInFrame(isolateId, vmFrame.getIndex(), expression, new EvaluateInFrameConsumer() {
-      @Override
-      public void received(InstanceRef instanceRef) {
-        callback.evaluated(new DartVmServiceValue(myDebugProcess, isolateId, "result", instanceRef, null, null, false));
-      }
+    addRequest(() -> {
+      // the user expression may change any object, so the objects received before it are not reused
+      myIsolatesInfo.invalidateObjectCache(isolateId);
+      myVmService.evaluateInFrame(isolateId, vmFrame.getIndex(), expression, new EvaluateInFrameConsumer() {
+        @Override
+        public void received(InstanceRef instanceRef) {
+          callback.evaluated(new DartVmServiceValue(myDebugProcess, isolateId, "result", instanceRef, null, null, false));
+        }
 
-      @Override
-      public void received(Sentinel sentinel) {
-        @NlsSafe String message = sentinel.getValueAsString();
-        callback.errorOccurred(message);
-      }
+        @Override
+        public void received(Sentinel sentinel) {
+          @NlsSafe String message = sentinel.getValueAsString();
+          callback.errorOccurred(message);
+        }
 
-      @Override
-      public void received(ErrorRef errorRef) {
-        callback.errorOccurred(DartVmServiceEvaluator.getPresentableError(errorRef.getMessage()));
-      }
+        @Override
+        public void received(ErrorRef errorRef) {
+          callback.errorOccurred(DartVmServiceEvaluator.getPresentableError(errorRef.getMessage()));
+        }
 
-      @Override
-      public void onError(RPCError error) {
-        @NlsSafe String message = error.getMessage();
-        callback.errorOccurred(message);
-      }
-    }));
+        @Override
+        public void onError(RPCError error) {
+          @NlsSafe String message = error.getMessage();
+          callback.errorOccurred(message);
+        }
+      });
+    });
   }
 
   @SuppressWarnings("SameParameterValue")
@@ -527,7 +555,7 @@ public class VmServiceWrapper implements Disposable {
                                       @NotNull String targetId,
                                       @NotNull String expression,
                                       @NotNull XDebuggerEvaluator.XEvaluationCallback callback) {
-    evaluateInTargetContext(isolateId, targetId, expression, new EvaluateConsumer() {
+    final EvaluateConsumer consumer = new EvaluateConsumer() {
       @Override
       public void received(InstanceRef instanceRef) {
         callback.evaluated(new DartVmServiceValue(myDebugProcess, isolateId, "result", instanceRef, null, null, false));
@@ -549,6 +577,11 @@ public class VmServiceWrapper implements Disposable {
         @NlsSafe String message = error.getMessage();
         callback.errorOccurred(message);
       }
+    };
+    addRequest(() -> {
+      // the user expression may change any object, so the objects received before it are not reused
+      myIsolatesInfo.invalidateObjectCache(isolateId);
+      myVmService.evaluate(isolateId, targetId, expression, consumer);
     });
   }
 
@@ -592,4 +625,82 @@ public class VmServiceWrapper implements Disposable {
     final Version version = myVmService.getRuntimeVersion();
     return version.getMajor() >= 3 && version.getMinor() >= 11;
   }
+
+  /**
+   * Response to a getObject request shared by the consumers. A sentinel or an error is passed to the consumers waiting
+   * for it, but is not cached.
+   */
+  static final class CachedObject implements GetObjectConsumer {
+    private final Consumer<CachedObject> myOnFailure;
+    private final List<GetObjectConsumer> myConsumers = new ArrayList<>();
+    private boolean myRequestStarted;
+    private boolean myDone;
+    private Obj myObj;
+    private Sentinel mySentinel;
+    private RPCError myError;
+
+    private CachedObject(@NotNull Consumer<CachedObject> onFailure) {
+      myOnFailure = onFailure;
+    }
+
+    private synchronized boolean startRequest() {
+      if (myRequestStarted) return false;
+      myRequestStarted = true;
+      return true;
+    }
+
+    private void addConsumer(@NotNull GetObjectConsumer consumer) {
+      synchronized (this) {
+        if (!myDone) {
+          myConsumers.add(consumer);
+          return;
+        }
+      }
+      deliver(consumer);
+    }
+
+    @Override
+    public void received(Obj response) {
+      complete(response, null, null);
+    }
+
+    @Override
+    public void received(Sentinel response) {
+      myOnFailure.accept(this);
+      complete(null, response, null);
+    }
+
+    @Override
+    public void onError(RPCError error) {
+      myOnFailure.accept(this);
+      complete(null, null, error);
+    }
+
+    private void complete(@Nullable Obj obj, @Nullable Sentinel sentinel, @Nullable RPCError error) {
+      final List<GetObjectConsumer> consumers;
+      synchronized (this) {
+        myObj = obj;
+        mySentinel = sentinel;
+        myError = error;
+        myDone = true;
+        consumers = new ArrayList<>(myConsumers);
+        myConsumers.clear();
+      }
+      for (GetObjectConsumer consumer : consumers) {
+        deliver(consumer);
+      }
+    }
+
+    private void deliver(@NotNull GetObjectConsumer consumer) {
+      if (myObj != null) {
+        consumer.received(myObj);
+      }
+      else if (mySentinel != null) {
+        consumer.received(mySentinel);
+      }
+      else {
+        consumer.onError(myError);
+      }
+    }
+  }
 }
@@ -0,0 +1,112 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.analyzer;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.editor.impl.DocumentImpl;
+import com.intellij.openapi.editor.impl.event.DocumentEventImpl;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+import com.jetbrains.lang.dart.analyzer.DartServerData.DartRegion;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+public class DartRegionTableTest extends BasePlatformTestCase {
+  private Document myDocument;
+
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    myDocument = new DocumentImpl(StringUtil.repeat("x", 30));
+  }
+
+  public void testDeletingTouchedShiftsOnInsert() {
+    DartRegionTable table = createTable();
+    table.updateDeletingTouched(insert(0, "ab"));
+    assertRegions(table, 4, 3, 12, 4);
+
+    table = createTable();
+    table.updateDeletingTouched(insert(7, "ab"));
+    assertRegions(table, 2, 3, 12, 4);
+
+    table = createTable();
+    table.updateDeletingTouched(insert(5, "ab"));
+    assertRegions(table, 2, 3, 12, 4);
+  }
+
+  public void testDeletingTouchedShiftsOnDelete() {
+    DartRegionTable table = createTable();
+    table.updateDeletingTouched(delete(6, 8));
+    assertRegions(table, 2, 3, 8, 4);
+  }
+
+  public void testDeletingTouchedRemovesTouched() {
+    DartRegionTable table = createTable();
+    table.updateDeletingTouched(insert(3, "ab"));
+    assertRegions(table, 12, 4);
+
+    table = createTable();
+    table.updateDeletingTouched(delete(4, 11));
+    assertRegions(table);
+  }
+
+  public void testUpdatingTouchedOnInsert() {
+    DartRegionTable table = createTable();
+    table.updateUpdatingTouched(insert(3, "ab"));
+    assertRegions(table, 2, 5, 12, 4);
+
+    table = createTable();
+    table.updateUpdatingTouched(insert(2, "ab"));
+    assertRegions(table, 4, 3, 12, 4);
+  }
+
+  public void testUpdatingTouchedOnDelete() {
+    DartRegionTable table = createTable();
+    table.updateUpdatingTouched(delete(11, 13));
+    assertRegions(table, 2, 3, 10, 2);
+
+    table = createTable();
+    table.updateUpdatingTouched(delete(10, 14));
+    assertRegions(table, 2, 3);
+
+    table = createTable();
+    table.updateUpdatingTouched(delete(4, 12));
+    assertRegions(table);
+  }
+
+  public void testListIsSnapshot() {
+    DartRegionTable table = createTable();
+    List<? extends DartRegion> regions = table.asList();
+    table.updateDeletingTouched(insert(3, "ab"));
+
+    assertEquals(2, regions.size());
+    assertEquals(2, regions.get(0).getOffset());
+    assertEquals(10, regions.get(1).getOffset());
+    assertRegions(table, 12, 4);
+  }
+
+  @NotNull
+  private static DartRegionTable createTable() {
+    return new DartRegionTable(new int[]{2, 10}, new int[]{3, 4});
+  }
+
+  @NotNull
+  private DocumentEvent insert(int offset, @NotNull String text) {
+    return new DocumentEventImpl(myDocument, offset, "", text, 0, false);
+  }
+
+  @NotNull
+  private DocumentEvent delete(int startOffset, int endOffset) {
+    return new DocumentEventImpl(myDocument, startOffset, myDocument.getCharsSequence().subSequence(startOffset, endOffset), "", 0, false);
+  }
+
+  private static void assertRegions(@NotNull DartRegionTable table, int... offsetsAndLengths) {
+    List<? extends DartRegion> regions = table.asList();
+    assertEquals(offsetsAndLengths.length / 2, regions.size());
+    for (int i = 0; i < regions.size(); i++) {
+      assertEquals(offsetsAndLengths[2 * i], regions.get(i).getOffset());
+      assertEquals(offsetsAndLengths[2 * i + 1], regions.get(i).getLength());
+    }
+  }
+}
@@ -0,0 +1,99 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.jetbrains.lang.dart.coverage;
+
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class DartCoverageDataTest extends TestCase {
+  private final List<String> myRequestedSources = new ArrayList<>();
+  private int myEntryCount;
+
+  @NotNull
+  private Map<String, DartCoverageData.LineHits> read(@NotNull String json) throws IOException {
+    return DartCoverageData.readMergedLineHits(new StringReader(json), source -> {
+      myRequestedSources.add(source);
+      return source.startsWith("file://") ? source.substring("file://".length()) : null;
+    }, () -> myEntryCount++);
+  }
+
+  private static void assertHits(@NotNull DartCoverageData.LineHits lineHits, int... expectedHits) {
+    assertEquals(expectedHits.length - 1, lineHits.getLastLine());
+    for (int line = 0; line < expectedHits.length; line++) {
+      assertEquals("line " + line, expectedHits[line], lineHits.getHits(line));
+    }
+    assertEquals(-1, lineHits.getHits(expectedHits.length));
+  }
+
+  public void testHitsAfterSource() throws IOException {
+    Map<String, DartCoverageData.LineHits> result =
+      read("{\"type\": \"CodeCoverage\", \"coverage\": [{\"source\": \"file:///a.dart\", \"hits\": [1, 2, 3, 0]}]}");
+    assertEquals(1, result.size());
+    assertHits(result.get("/a.dart"), -1, 2, -1, 0);
+    assertEquals(1, myEntryCount);
+  }
+
+  public void testHitsBeforeSource() throws IOException {
+    Map<String, DartCoverageData.LineHits> result =
+      read("{\"coverage\": [{\"hits\": [2, 5, 1, 1], \"script\": {}, \"source\": \"file:///a.dart\"}]}");
+    assertHits(result.get("/a.dart"), -1, 1, 5);
+  }
+
+  public void testLineRanges() throws IOException {
+    Map<String, DartCoverageData.LineHits> result =
+      read("{\"coverage\": [{\"source\": \"file:///a.dart\", \"hits\": [\"2-4\", 3, \"6\", 0, 7, 1]}]}");
+    assertHits(result.get("/a.dart"), -1, -1, 3, 3, 3, -1, 0, 1);
+  }
+
+  public void testSkippedSources() throws IOException {
+    Map<String, DartCoverageData.LineHits> result =
+      read("{\"coverage\": [" +
+           "{\"hits\": [1, 1], \"source\": \"dart:core\"}, " +
+           "{\"source\": \"dart:core\", \"hits\": [2, 1]}, " +
+           "{\"source\": \"file:///a.dart\", \"hits\": [1, 1]}]}");
+    assertEquals(1, result.size());
+    assertHits(result.get("/a.dart"), -1, 1);
+    assertEquals("the path of a source is requested once", 2, myRequestedSources.size());
+    assertEquals(3, myEntryCount);
+  }
+
+  public void testDuplicateSourcesMerged() throws IOException {
+    Map<String, DartCoverageData.LineHits> result =
+      read("{\"coverage\": [" +
+           "{\"source\": \"file:///a.dart\", \"hits\": [1, 1, 3, 0]}, " +
+           "{\"source\": \"file:///b.dart\", \"hits\": [1, 7]}, " +
+           "{\"hits\": [1, 2, 2, 0, \"3-4\", 5], \"source\": \"file:///a.dart\"}]}");
+    assertEquals(2, result.size());
+    assertHits(result.get("/a.dart"), -1, 3, 0, 5, 5);
+    assertHits(result.get("/b.dart"), -1, 7);
+    assertEquals(2, myRequestedSources.size());
+  }
+
+  public void testNoCoverage() throws IOException {
+    assertTrue(read("{\"type\": \"CodeCoverage\"}").isEmpty());
+    assertTrue(read("{\"coverage\": []}").isEmpty());
+  }
+
+  public void testMissingHitCount() {
+    try {
+      read("{\"coverage\": [{\"source\": \"file:///a.dart\", \"hits\": [1, 1, 2]}]}");
+      fail("IOException expected");
+    }
+    catch (IOException expected) {
+    }
+  }
+
+  public void testWrongLineRange() {
+    try {
+      read("{\"coverage\": [{\"source\": \"file:///a.dart\", \"hits\": [\"1-x\", 1]}]}");
+      fail("IOException expected");
+    }
+    catch (IOException expected) {
+    }
+  }
+}
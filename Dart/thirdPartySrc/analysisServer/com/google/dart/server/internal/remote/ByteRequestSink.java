@@ -13,7 +13,9 @@
  */
 package com.google.dart.server.internal.remote;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import java.io.OutputStream;
@@ -21,16 +23,30 @@ import java.io.OutputStreamWriter;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
  * An {@link OutputStream} based implementation of {@link RequestSink}.
+ * <p>
+ * If the server doesn't read requests as fast as they are added, requests that somebody waits for
+ * (hover, quick fixes, completion, etc.) overtake queued read-only bulk requests, such as search.
+ * Requests that change the server state are never overtaken.
  *
  * @coverage dart.server.remote
  */
 public class ByteRequestSink implements RequestSink {
+  private static final Set<String> INTERACTIVE_METHODS =
+    ImmutableSet.of("analysis.getHover", "analysis.getImportedElements", "analysis.getNavigation", "completion.getSuggestions",
+                    "completion.getSuggestionDetails", "edit.format", "edit.getAssists", "edit.getFixes", "edit.getPostfixCompletion",
+                    "edit.getStatementCompletion", "edit.importElements", "edit.isPostfixCompletionApplicable",
+                    "edit.organizeDirectives", "edit.sortMembers", "execution.getSuggestions", "execution.mapUri");
+
+  private static final Set<String> BULK_METHODS =
+    ImmutableSet.of("analysis.getErrors", "analysis.getLibraryDependencies", "diagnostic.getDiagnostics", "edit.dartfix",
+                    "search.findElementReferences", "search.findMemberDeclarations", "search.findMemberReferences",
+                    "search.findTopLevelDeclarations", "search.getTypeHierarchy");
+
   /**
    * The {@link PrintWriter} to print JSON strings to.
    */
@@ -42,7 +58,7 @@ public class ByteRequestSink implements RequestSink {
   /**
    * The queue of lines.
    */
-  private final BlockingQueue<String> lineQueue = new LinkedBlockingQueue<String>();
+  private final PriorityLaneQueue<String> lineQueue = new PriorityLaneQueue<String>();
 
   /**
    * Initializes a newly created request sink.
@@ -64,13 +80,25 @@ public class ByteRequestSink implements RequestSink {
         debugStream.println(System.currentTimeMillis() + " => " + text);
       }
     }
-    lineQueue.add(text);
+    lineQueue.add(text, getPriority(request));
   }
 
   @Override
   public void close() {
     writer.close();
-    lineQueue.add(ByteResponseStream.EOF_LINE);
+    lineQueue.add(ByteResponseStream.EOF_LINE, PriorityLaneQueue.Priority.ORDERED);
+  }
+
+  private static PriorityLaneQueue.Priority getPriority(JsonObject request) {
+    JsonElement methodElement = request.get("method");
+    String method = methodElement != null && methodElement.isJsonPrimitive() ? methodElement.getAsString() : "";
+    if (INTERACTIVE_METHODS.contains(method)) {
+      return PriorityLaneQueue.Priority.INTERACTIVE;
+    }
+    if (BULK_METHODS.contains(method)) {
+      return PriorityLaneQueue.Priority.BULK;
+    }
+    return PriorityLaneQueue.Priority.ORDERED;
   }
 
   public void waitForFlush() {
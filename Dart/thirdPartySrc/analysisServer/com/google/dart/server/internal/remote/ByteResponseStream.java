@@ -19,12 +19,16 @@ import com.google.gson.JsonSyntaxException;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An {@link InputStream} based implementation of {@link ResponseStream}. Each line must contain
  * exactly one complete JSON object.
+ * <p>
+ * Lines are decoded into {@link JsonObject}s by a small pool of decoder threads, so that a big
+ * notification doesn't delay reading and decoding of the following lines. Decoded responses are
+ * still returned by {@link #take()} in the order they have been received.
  *
  * @coverage dart.server.remote
  */
@@ -46,7 +50,8 @@ public class ByteResponseStream implements ResponseStream {
         }
         // check for EOF
         if (line == null) {
-          lineQueue.add(EOF_LINE);
+          responseQueue.add(EOF_RESPONSE);
+          decoderExecutor.shutdown();
 
           if (onStreamEndRunnable != null) {
             onStreamEndRunnable.run();
@@ -54,6 +59,7 @@ public class ByteResponseStream implements ResponseStream {
 
           return;
         }
+        long receivedNanos = System.nanoTime();
         // debug output
         if (debugStream != null) {
           debugStream.println(System.currentTimeMillis() + " <= " + line);
@@ -62,14 +68,54 @@ public class ByteResponseStream implements ResponseStream {
         if (!line.startsWith("{")) {
           continue;
         }
-        // add a JSON line
-        lineQueue.add(line);
+        // decode a JSON line
+        responseQueue.add(new PendingResponse(receivedNanos, decoderExecutor.submit(new DecodeTask(line))));
       }
     }
   }
 
+  private static class DecodeTask implements Callable<JsonObject> {
+    private final String line;
+
+    private DecodeTask(String line) {
+      this.line = line;
+    }
+
+    @Override
+    public JsonObject call() {
+      try {
+        return (JsonObject) new JsonParser().parse(line);
+      } catch (JsonSyntaxException e) {
+        // Include the line in the message so that we can better diagnose the problem
+        throw new JsonSyntaxException("Parse server message failed: " + line, e);
+      }
+    }
+  }
+
+  /**
+   * A line which is being decoded.
+   */
+  private static class PendingResponse {
+    private final long receivedNanos;
+    private final Future<JsonObject> response;
+
+    private PendingResponse(long receivedNanos, Future<JsonObject> response) {
+      this.receivedNanos = receivedNanos;
+      this.response = response;
+    }
+  }
+
   public static final String EOF_LINE = "EOF line";
 
+  private static final PendingResponse EOF_RESPONSE = new PendingResponse(0, null);
+
+  /**
+   * The number of threads decoding lines into {@link JsonObject}s.
+   */
+  private static final int DECODER_THREAD_COUNT = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+
+  private static final AtomicInteger decoderThreadNumber = new AtomicInteger();
+
   /**
    * The {@link BufferedReader} to read JSON strings from.
    */
@@ -82,9 +128,26 @@ public class ByteResponseStream implements ResponseStream {
   private final Runnable onStreamEndRunnable;
 
   /**
-   * The queue of lines.
+   * The executor decoding lines.
    */
-  private final BlockingQueue<String> lineQueue = new LinkedBlockingQueue<String>();
+  private final ExecutorService decoderExecutor = Executors.newFixedThreadPool(DECODER_THREAD_COUNT, new ThreadFactory() {
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "ByteResponseStream.Decoder-" + decoderThreadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  });
+
+  /**
+   * The queue of responses in the order they have been received.
+   */
+  private final BlockingQueue<PendingResponse> responseQueue = new LinkedBlockingQueue<PendingResponse>();
+
+  /**
+   * The time when the response last returned by {@link #take()} has been received.
+   */
+  private long lastTakenResponseReceivedNanos;
 
   /**
    * Initializes a newly created response stream.
@@ -105,16 +168,22 @@ public class ByteResponseStream implements ResponseStream {
 
   @Override
   public JsonObject take() throws Exception {
-    String line = lineQueue.take();
-    if (line == EOF_LINE) {
-      lineQueue.add(line);
+    PendingResponse pendingResponse = responseQueue.take();
+    if (pendingResponse == EOF_RESPONSE) {
+      responseQueue.add(pendingResponse);
       return null;
     }
+    lastTakenResponseReceivedNanos = pendingResponse.receivedNanos;
     try {
-      return (JsonObject) new JsonParser().parse(line);
-    } catch (JsonSyntaxException e) {
-      // Include the line in the message so that we can better diagnose the problem
-      throw new JsonSyntaxException("Parse server message failed: " + line, e);
+      return pendingResponse.response.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof Exception ? (Exception) cause : e;
     }
   }
+
+  @Override
+  public long getLastTakenResponseReceivedNanos() {
+    return lastTakenResponseReceivedNanos;
+  }
 }
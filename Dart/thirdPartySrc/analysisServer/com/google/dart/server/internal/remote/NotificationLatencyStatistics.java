@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2014, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.dart.server.internal.remote;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms of the server responses and notifications, grouped by notification type. The
+ * latency is measured from the moment the line has been read from the server output till the end
+ * of its processing, so it includes decoding and the time spent waiting in the queue.
+ *
+ * @coverage dart.server.remote
+ */
+public class NotificationLatencyStatistics {
+  /**
+   * The type under which the responses to requests are recorded.
+   */
+  public static final String RESPONSE_TYPE = "response";
+
+  /**
+   * Upper bounds (inclusive) of the histogram buckets in milliseconds, the last bucket is
+   * unbounded.
+   */
+  private static final long[] BUCKET_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+  private final ConcurrentMap<String, AtomicLongArray> histograms = new ConcurrentHashMap<String, AtomicLongArray>();
+
+  /**
+   * Records the latency of the response or notification of the given type.
+   *
+   * @param type the notification event name or {@link #RESPONSE_TYPE}
+   * @param receivedNanos the {@link System#nanoTime()} when the response has been read
+   */
+  public void record(String type, long receivedNanos) {
+    long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - receivedNanos);
+    AtomicLongArray histogram = histograms.get(type);
+    if (histogram == null) {
+      AtomicLongArray newHistogram = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+      histogram = histograms.putIfAbsent(type, newHistogram);
+      if (histogram == null) {
+        histogram = newHistogram;
+      }
+    }
+    histogram.incrementAndGet(getBucketIndex(latencyMs));
+  }
+
+  /**
+   * Returns the number of responses or notifications of the given type, which latency is in the
+   * given bucket.
+   */
+  public long getCount(String type, int bucketIndex) {
+    AtomicLongArray histogram = histograms.get(type);
+    return histogram == null ? 0 : histogram.get(bucketIndex);
+  }
+
+  public int getBucketCount() {
+    return BUCKET_BOUNDS_MS.length + 1;
+  }
+
+  public void clear() {
+    histograms.clear();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, AtomicLongArray> entry : new TreeMap<String, AtomicLongArray>(histograms).entrySet()) {
+      AtomicLongArray histogram = entry.getValue();
+      builder.append(entry.getKey()).append(':');
+      for (int i = 0; i < histogram.length(); i++) {
+        long count = histogram.get(i);
+        if (count == 0) {
+          continue;
+        }
+        builder.append(' ');
+        builder.append(i < BUCKET_BOUNDS_MS.length ? "<=" + BUCKET_BOUNDS_MS[i] : ">" + BUCKET_BOUNDS_MS[i - 1]);
+        builder.append("ms=").append(count);
+      }
+      builder.append('\n');
+    }
+    return builder.toString();
+  }
+
+  private static int getBucketIndex(long latencyMs) {
+    for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+      if (latencyMs <= BUCKET_BOUNDS_MS[i]) {
+        return i;
+      }
+    }
+    return BUCKET_BOUNDS_MS.length;
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014, the Dart project authors.
+ *
+ * Licensed under the Eclipse Public License v1.0 (the "License"); you may not use this file except
+ * in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License
+ * is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express
+ * or implied. See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.google.dart.server.internal.remote;
+
+import java.util.LinkedList;
+import java.util.ListIterator;
+
+/**
+ * A blocking FIFO queue in which {@link Priority#INTERACTIVE} items overtake {@link Priority#BULK}
+ * items queued after the last {@link Priority#ORDERED} item. {@link Priority#ORDERED} items are
+ * never overtaken, so they act as barriers for the items that must be handled strictly in order.
+ *
+ * @coverage dart.server.remote
+ */
+public class PriorityLaneQueue<T> {
+  public enum Priority {
+    /**
+     * Items that somebody waits for, such as hover or quick fixes requests.
+     */
+    INTERACTIVE,
+    /**
+     * Items that must not be reordered with any other items.
+     */
+    ORDERED,
+    /**
+     * Items that may be delayed by {@link #INTERACTIVE} items.
+     */
+    BULK
+  }
+
+  private static class Entry<T> {
+    private final T item;
+    private final Priority priority;
+
+    private Entry(T item, Priority priority) {
+      this.item = item;
+      this.priority = priority;
+    }
+  }
+
+  private final LinkedList<Entry<T>> entries = new LinkedList<Entry<T>>();
+
+  public synchronized void add(T item, Priority priority) {
+    Entry<T> entry = new Entry<T>(item, priority);
+    if (priority == Priority.INTERACTIVE) {
+      ListIterator<Entry<T>> iterator = entries.listIterator(entries.size());
+      while (iterator.hasPrevious()) {
+        if (iterator.previous().priority != Priority.BULK) {
+          iterator.next();
+          break;
+        }
+      }
+      iterator.add(entry);
+    }
+    else {
+      entries.addLast(entry);
+    }
+    notifyAll();
+  }
+
+  /**
+   * Takes the next item, blocks if the queue is empty.
+   */
+  public synchronized T take() throws InterruptedException {
+    while (entries.isEmpty()) {
+      wait();
+    }
+    return entries.removeFirst().item;
+  }
+
+  public synchronized boolean isEmpty() {
+    return entries.isEmpty();
+  }
+}
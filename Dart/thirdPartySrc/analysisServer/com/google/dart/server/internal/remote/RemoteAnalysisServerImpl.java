@@ -15,6 +15,7 @@ package com.google.dart.server.internal.remote;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.google.dart.server.*;
 import com.google.dart.server.generated.AnalysisServer;
@@ -36,6 +37,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -84,6 +86,21 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
 
   // Execution domain
   private static final String LAUNCH_DATA_NOTIFICATION_RESULTS = "execution.launchData";
+
+  /**
+   * Notifications that interactive features are waiting for, they are processed before the queued
+   * {@link #BULK_NOTIFICATIONS}.
+   */
+  private static final Set<String> INTERACTIVE_NOTIFICATIONS =
+    ImmutableSet.of(COMPLETION_NOTIFICATION_RESULTS, SEARCH_NOTIFICATION_RESULTS);
+
+  /**
+   * Notifications that are independent of each other and of other notifications for the same file.
+   */
+  private static final Set<String> BULK_NOTIFICATIONS =
+    ImmutableSet.of(ANALYSIS_NOTIFICATION_HIGHTLIGHTS, ANALYSIS_NOTIFICATION_IMPLEMENTED, ANALYSIS_NOTIFICATION_NAVIGATION,
+                    ANALYSIS_NOTIFICATION_OCCURRENCES, ANALYSIS_NOTIFICATION_OUTLINE, ANALYSIS_NOTIFICATION_OVERRIDES,
+                    ANALYSIS_NOTIFICATION_CLOSING_LABELS);
   private final AnalysisServerSocket socket;
   private final Object requestSinkLock = new Object();
   private RequestSink requestSink;
@@ -92,6 +109,11 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
   private final AtomicLong lastResponseTime = new AtomicLong(0);
   private final AtomicLong lastRequestTime = new AtomicLong(0);
 
+  /**
+   * Latency of the processed responses and notifications.
+   */
+  private final NotificationLatencyStatistics latencyStatistics = new NotificationLatencyStatistics();
+
   /**
    * The following is a subset of the list provided in the `allFixes` list,
    * dart-sdk-dir/analysis_server/lib/src/edit/fix/dartfix_info.dart
@@ -502,6 +524,13 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
 
   public void flutter_setWidgetPropertyValue(int id, FlutterWidgetPropertyValue value, SetWidgetPropertyValueConsumer consumer) {}
 
+  /**
+   * Returns latency histograms of the responses and notifications received from the server.
+   */
+  public NotificationLatencyStatistics getLatencyStatistics() {
+    return latencyStatistics;
+  }
+
   @Override
   public boolean isSocketOpen() {
     return socket.isOpen();
@@ -1120,11 +1149,18 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
   /**
    * A thread which reads responses from the {@link ResponseStream} and calls the associated
    * {@link Consumer}s from {@link RemoteAnalysisServerImpl#consumerMap}.
+   * <p>
+   * Notifications are processed by a separate {@link NotificationProcessorThread}, so that big
+   * notifications don't delay responses to interactive requests. Responses that affect how the
+   * following notifications are interpreted (for example 'analysis.updateContent') are processed by
+   * the notification thread as well, to keep them ordered with notifications.
    */
   public class ServerResponseReaderThread extends Thread {
 
     private ResponseStream stream;
 
+    private final NotificationProcessorThread notificationProcessor = new NotificationProcessorThread();
+
     public ServerResponseReaderThread(ResponseStream stream) {
       setDaemon(true);
       setName("ServerResponseReaderThread");
@@ -1133,35 +1169,141 @@ public class RemoteAnalysisServerImpl implements AnalysisServer {
 
     @Override
     public void run() {
+      notificationProcessor.start();
+      try {
+        readResponses();
+      }
+      finally {
+        notificationProcessor.stopProcessing();
+      }
+    }
+
+    private void readResponses() {
       while (true) {
         try {
           JsonObject response = stream.take();
           if (response == null) {
             return;
           }
+          long receivedNanos = stream.getLastTakenResponseReceivedNanos();
           lastResponseTime.set(System.currentTimeMillis());
           try {
-            processResponse(response);
+            PriorityLaneQueue.Priority notificationPriority = getNotificationLanePriority(response);
+            if (notificationPriority != null) {
+              notificationProcessor.add(response, receivedNanos, notificationPriority);
+            }
+            else {
+              processResponse(response, receivedNanos);
+            }
           }
           finally {
             stream.lastRequestProcessed();
           }
         }
         catch (Throwable e) {
-          // Ignore exceptions during shutdown
-          if (shutdownRequested) {
+          if (!handleProcessingError(e)) {
             return;
           }
-          if (e instanceof IOException) {
-            String message = e.getMessage();
-            if (message != null && message.contains("closed")) {
-              Logging.getLogger().logError("AnalysisServer stream unexpected closed", e);
-              return;
-            }
-          }
-          Logging.getLogger().logError(e.getMessage(), e);
         }
       }
     }
   }
+
+  /**
+   * A thread which processes notifications and the responses that must be ordered with them.
+   * Notifications that are needed for interactive features (completion and search results) overtake
+   * the queued bulk notifications, such as navigation or highlights.
+   */
+  private class NotificationProcessorThread extends Thread {
+    private final PriorityLaneQueue<Runnable> queue = new PriorityLaneQueue<Runnable>();
+    private volatile boolean stopped;
+
+    NotificationProcessorThread() {
+      setDaemon(true);
+      setName("ServerNotificationProcessorThread");
+    }
+
+    void add(JsonObject response, long receivedNanos, PriorityLaneQueue.Priority priority) {
+      queue.add(() -> {
+        try {
+          processResponse(response, receivedNanos);
+        }
+        catch (Throwable e) {
+          handleProcessingError(e);
+        }
+      }, priority);
+    }
+
+    void stopProcessing() {
+      queue.add(() -> stopped = true, PriorityLaneQueue.Priority.ORDERED);
+    }
+
+    @Override
+    public void run() {
+      while (!stopped) {
+        try {
+          queue.take().run();
+        }
+        catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  private void processResponse(JsonObject response, long receivedNanos) throws Exception {
+    JsonElement eventElement = response.get("event");
+    String type = eventElement != null && eventElement.isJsonPrimitive()
+                  ? eventElement.getAsString()
+                  : NotificationLatencyStatistics.RESPONSE_TYPE;
+    processResponse(response);
+    latencyStatistics.record(type, receivedNanos);
+  }
+
+  /**
+   * @return {@code false} if response processing should be stopped
+   */
+  private boolean handleProcessingError(Throwable e) {
+    // Ignore exceptions during shutdown
+    if (shutdownRequested) {
+      return false;
+    }
+    if (e instanceof IOException) {
+      String message = e.getMessage();
+      if (message != null && message.contains("closed")) {
+        Logging.getLogger().logError("AnalysisServer stream unexpected closed", e);
+        return false;
+      }
+    }
+    Logging.getLogger().logError(e.getMessage(), e);
+    return true;
+  }
+
+  /**
+   * Returns the priority with which the given notification or response should be processed by the
+   * {@link NotificationProcessorThread}, or {@code null} if it is a response that may be processed
+   * immediately.
+   */
+  private PriorityLaneQueue.Priority getNotificationLanePriority(JsonObject response) {
+    JsonElement eventElement = response.get("event");
+    if (eventElement != null) {
+      String event = eventElement.isJsonPrimitive() ? eventElement.getAsString() : "";
+      if (INTERACTIVE_NOTIFICATIONS.contains(event)) {
+        return PriorityLaneQueue.Priority.INTERACTIVE;
+      }
+      if (BULK_NOTIFICATIONS.contains(event)) {
+        return PriorityLaneQueue.Priority.BULK;
+      }
+      return PriorityLaneQueue.Priority.ORDERED;
+    }
+    JsonElement idElement = response.get("id");
+    if (idElement == null || !idElement.isJsonPrimitive()) {
+      return PriorityLaneQueue.Priority.ORDERED;
+    }
+    Consumer consumer;
+    synchronized (consumerMapLock) {
+      consumer = consumerMap.get(idElement.getAsString());
+    }
+    return consumer == null || consumer instanceof UpdateContentConsumer ? PriorityLaneQueue.Priority.ORDERED : null;
+  }
 }
@@ -30,4 +30,10 @@ public interface ResponseStream {
    * Takes the the next response from the stream. Blocks if no response available.
    */
   JsonObject take() throws Exception;
+
+  /**
+   * Returns the {@link System#nanoTime()} when the response last returned by {@link #take()} has
+   * been read from the server.
+   */
+  long getLastTakenResponseReceivedNanos();
 }
@@ -13,27 +13,50 @@ import jetbrains.communicator.ide.IDEFacade;
 import jetbrains.communicator.util.WaitFor;
 import org.apache.log4j.Logger;
 
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
+ * Messages are delivered on a pool of {@link #MAX_DELIVERY_THREADS} threads, one delivery per user at a time,
+ * so an unreachable user doesn't delay the delivery to the others. After a failed delivery the user is retried
+ * with an exponential backoff, or as soon as the user goes online.
+ *
  * @author Kir
  */
 public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implements AsyncMessageDispatcher, Runnable {
   private static final Logger LOG = Logger.getLogger(AsyncMessageDispatcherImpl.class);
 
   private static final String FILE_NAME = "pendingNetworkMessages.xml";
+  private static final int MAX_DELIVERY_THREADS = 4;
+  private static final long MIN_RETRY_DELAY = 1000;
+  private static final long MAX_RETRY_DELAY = 5 * 60 * 1000;
+  // delivered messages are removed from the pending messages file at most once per this period
+  private static final long SAVE_DELAY = 2000;
+
   private final MyEventListener myEventListener;
   private final IDEFacade myIdeFacade;
+  private final ExecutorService myDeliveryExecutor;
 
   private final Object myWorkingThreadLock = new Object();
   private Thread myWorkingThread;
   private Thread myThread;
 
   private boolean myShouldDeliverNow;
+  private final Set<User> myUsersInDelivery = new HashSet<>();
+  private final Map<User, RetryState> myRetryStates = new HashMap<>();
+  private boolean mySaveNeeded;
+  private long myLastSaveTime;
 
   public AsyncMessageDispatcherImpl(EventBroadcaster broadcaster, IDEFacade ideFacade) {
     super(broadcaster, ideFacade.getCacheDir());
 
     myIdeFacade = ideFacade;
     myEventListener = new MyEventListener(broadcaster);
+    myDeliveryExecutor = createDeliveryExecutor();
 
     start();
   }
@@ -45,10 +68,28 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
     t.start();
   }
 
+  private static ExecutorService createDeliveryExecutor() {
+    AtomicInteger threadCount = new AtomicInteger();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+      MAX_DELIVERY_THREADS, MAX_DELIVERY_THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+      Thread thread = new Thread(runnable, "Network Message Delivery " + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   public boolean isRunning() {
     return myThread != null && myThread.isAlive();
   }
 
+  boolean isMessageDispatchInProgress() {
+    synchronized (myWorkingThreadLock) {
+      return myShouldDeliverNow || !myUsersInDelivery.isEmpty();
+    }
+  }
+
   @Override
   public void run() {
     LOG.debug("Starting " + Thread.currentThread().getName());
@@ -61,8 +102,9 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
       LOG.debug("Started Network Message Dispatcher thread");
       while (notDisposed()) {
         synchronized(myWorkingThreadLock) {
-          while (!myShouldDeliverNow && notDisposed()) {
-            myWorkingThreadLock.wait();
+          long waitTime;
+          while (!myShouldDeliverNow && notDisposed() && (waitTime = getWaitTime()) > 0) {
+            myWorkingThreadLock.wait(waitTime == Long.MAX_VALUE ? 0 : waitTime);
           }
           myShouldDeliverNow = false;
         }
@@ -70,6 +112,7 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
 
         if (notDisposed()) {
           dispatchAllMessages();
+          saveIfNeeded(false);
         }
       }
     } catch (InterruptedException e) {
@@ -79,22 +122,85 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
       synchronized(myWorkingThreadLock) {
         myWorkingThread = null;
       }
+      myDeliveryExecutor.shutdown();
+      saveIfNeeded(true);
     }
   }
 
+  /**
+   * Returns the time till the next retry of a failed delivery or the next save of the pending messages.
+   */
+  private long getWaitTime() {
+    long now = System.currentTimeMillis();
+    long result = mySaveNeeded ? myLastSaveTime + SAVE_DELAY - now : Long.MAX_VALUE;
+    for (Map.Entry<User, RetryState> entry : myRetryStates.entrySet()) {
+      if (!myUsersInDelivery.contains(entry.getKey())) {
+        result = Math.min(result, entry.getValue().myNextAttemptTime - now);
+      }
+    }
+    return result;
+  }
+
   private boolean notDisposed() {
     return myWorkingThread != null;
   }
 
   private void dispatchAllMessages() {
     User[] usersWithMessages = getUsersWithMessages();
-    for (int i = 0; i < usersWithMessages.length && isRunning(); i++) {
-      User user = usersWithMessages[i];
+    long now = System.currentTimeMillis();
+    synchronized (myWorkingThreadLock) {
+      myRetryStates.keySet().retainAll(Arrays.asList(usersWithMessages));
+      for (User user : usersWithMessages) {
+        RetryState retryState = myRetryStates.get(user);
+        if (myUsersInDelivery.contains(user) || retryState != null && retryState.myNextAttemptTime > now) {
+          continue;
+        }
+        myUsersInDelivery.add(user);
+        myDeliveryExecutor.execute(() -> deliverMessages(user));
+      }
+    }
+  }
+
+  /**
+   * Delivers the pending messages of the user in order, stops at the first failure.
+   */
+  private void deliverMessages(User user) {
+    boolean delivered = true;
+    try {
       Message[] pendingMessages = getPendingMessages(user);
-      for (int j = 0; j < pendingMessages.length && isRunning(); j++) {
-        performDispatch(user, pendingMessages[j]);
+      for (int i = 0; i < pendingMessages.length && delivered && isRunning(); i++) {
+        delivered = performDispatch(user, pendingMessages[i]);
+      }
+    }
+    catch (RuntimeException e) {
+      LOG.warn("Failed to deliver messages to " + user, e);
+      delivered = false;
+    }
+    finally {
+      synchronized (myWorkingThreadLock) {
+        myUsersInDelivery.remove(user);
+        mySaveNeeded = true;
+        if (delivered) {
+          myRetryStates.remove(user);
+          // messages added during the delivery
+          myShouldDeliverNow |= getPendingMessages(user).length > 0;
+        }
+        else {
+          RetryState retryState = myRetryStates.computeIfAbsent(user, u -> new RetryState());
+          retryState.myNextAttemptTime = System.currentTimeMillis() +
+                                         Math.min(MAX_RETRY_DELAY, MIN_RETRY_DELAY << Math.min(retryState.myFailures++, 16));
+        }
+        myWorkingThreadLock.notifyAll();
       }
     }
+  }
+
+  private void saveIfNeeded(boolean force) {
+    synchronized (myWorkingThreadLock) {
+      if (!mySaveNeeded || !force && System.currentTimeMillis() < myLastSaveTime + SAVE_DELAY) return;
+      mySaveNeeded = false;
+      myLastSaveTime = System.currentTimeMillis();
+    }
     save();
   }
 
@@ -157,9 +263,17 @@ public class AsyncMessageDispatcherImpl extends AbstractMessageDispatcher implem
     public void afterChange(IDEtalkEvent event) {
       event.accept(new EventVisitor(){
         @Override public void visitUserOnline(UserEvent.Online online) {
+          synchronized (myWorkingThreadLock) {
+            myRetryStates.remove(online.getUser());
+          }
           triggerDelivery();
         }
       });
     }
   }
+
+  private static class RetryState {
+    private int myFailures;
+    private long myNextAttemptTime;
+  }
 }
@@ -14,12 +14,22 @@ import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.Future;
 
 /**
+ * Message history kept in {@link MessageHistoryLog}. The messages added in this session are kept in memory and appended
+ * to the log in batches, the messages of the previous sessions are read from the log for the requested user only.
+ * The day files of the XML history format that could not be migrated to the log are read as before.
+ *
  * @author Kir
  */
 class MessageHistory {
@@ -29,12 +39,22 @@ class MessageHistory {
   public static final long SAVE_TIMEOUT = 300;
   @NonNls
   private static final String HISTORY = "history";
+  @NonNls
+  private static final String XML_EXTENSION = ".xml";
+  @NonNls
+  private static final String MIGRATION_MARKER_EXTENSION = ".migrating";
 
-  private final DayHistory myHistory = new DayHistory();
+  private final DayHistory mySessionHistory = new DayHistory();
+  private final List<MessageHistoryLog.Record> myUnsavedRecords = new ArrayList<>();
+  private final Map<String, SoftReference<LoadedHistory>> myLoadedHistory = new HashMap<>();
+  // day files of the XML history format that are not migrated to the log
+  private final List<String> myXmlHistoryFiles = new ArrayList<>();
   @NonNls
   private final XStream myXStream;
   private final UserModel myUserModel;
+  private final UserConverter myUserConverter;
   private final IDEFacade myFacade;
+  private final MessageHistoryLog myLog;
 
   private Future<?> myPendingSave;
 
@@ -44,13 +64,15 @@ class MessageHistory {
   MessageHistory(IDEFacade facade, UserModel userModel) {
     myFacade = facade;
     myUserModel = userModel;
+    myUserConverter = new UserConverter(myUserModel);
 
     getHistoryDir().mkdir();
 
     myXStream = XStreamUtil.createXStream();
     setupXStream();
 
-    loadHistorySince(new Date());
+    migrateXmlHistory();
+    myLog = new MessageHistoryLog(getHistoryDir());
   }
 
   public synchronized void dispose() {
@@ -59,7 +81,8 @@ class MessageHistory {
       myPendingSave = null;
     }
 
-    myHistory.clear();
+    mySessionHistory.clear();
+    myLoadedHistory.clear();
   }
 
   private void setupXStream() {
@@ -67,17 +90,22 @@ class MessageHistory {
     myXStream.alias("dayHistory", DayHistory.class);
     myXStream.aliasField("historyEntries", DayHistory.class, "myData");
 
-    myXStream.registerConverter(new UserConverter(myUserModel));
+    myXStream.registerConverter(myUserConverter);
   }
 
   public synchronized void addMessage(User user, LocalMessage message) {
-    myHistory.addMessage(user, message);
+    mySessionHistory.addMessage(user, message);
+    myUnsavedRecords.add(createRecord(user, message));
     triggerSave();
   }
 
   public synchronized void clear() {
-    myHistory.clear();
+    mySessionHistory.clear();
+    myUnsavedRecords.clear();
+    myLoadedHistory.clear();
+    myXmlHistoryFiles.clear();
 
+    myLog.deleteAll();
     deleteAllHistoryFiles();
   }
 
@@ -96,14 +124,10 @@ class MessageHistory {
   }
 
   public synchronized LocalMessage[] getHistory(User user, @Nullable Date since) {
-    loadHistorySince(since);
-
-    List<LocalMessage> list = filterHistoryByDate(user, since);
-    return list.toArray(new LocalMessage[0]);
-  }
+    List<LocalMessage> list = new ArrayList<>(loadHistorySince(user, since));
+    list.addAll(mySessionHistory.readMessages(user));
+    list.sort(Comparator.comparing(LocalMessage::getWhen));
 
-  private List<LocalMessage> filterHistoryByDate(User user, Date since) {
-    List<LocalMessage> list = myHistory.readMessages(user);
     if (since != null) {
       List<LocalMessage> result = new ArrayList<>(list.size());
       for (LocalMessage message : list) {
@@ -113,51 +137,99 @@ class MessageHistory {
       }
       list = result;
     }
-    return list;
+    return list.toArray(new LocalMessage[0]);
   }
 
-  private void loadHistorySince(@Nullable Date since) {
-    if (since != null) {
-      since = TimeUtil.getDay(since);
+  /**
+   * @return messages of the previous sessions since the day of {@code since}
+   */
+  private List<LocalMessage> loadHistorySince(User user, @Nullable Date since) {
+    long sinceDay = since == null ? Long.MIN_VALUE : TimeUtil.getDay(since).getTime();
+    String userKey = myUserConverter.toString(user);
+
+    SoftReference<LoadedHistory> ref = myLoadedHistory.get(userKey);
+    LoadedHistory loaded = ref == null ? null : ref.get();
+    if (loaded == null) {
+      loaded = new LoadedHistory();
+      myLoadedHistory.put(userKey, new SoftReference<>(loaded));
     }
 
-    if (!myHistory.hasHistorySince(since)) {
-      if (since == null) {
-        doLoadHistorySince(new Date(0));
-        myHistory.setHasFullHistory();
+    if (sinceDay < loaded.mySinceDay) {
+      List<LocalMessage> older = new ArrayList<>();
+      Set<String> payloads = new HashSet<>();
+      for (String segmentName : myLog.getSegmentNames()) {
+        if (isDayInRange(segmentName, sinceDay, loaded.mySinceDay)) {
+          readMessages(segmentName, userKey, older, payloads);
+        }
       }
-      else {
-        doLoadHistorySince(since);
+      for (String historyFile : myXmlHistoryFiles) {
+        if (isDayInRange(historyFile, sinceDay, loaded.mySinceDay)) {
+          readXmlMessages(historyFile, user, older, payloads);
+        }
       }
+      older.addAll(loaded.myMessages);
+      loaded.myMessages = older;
+      loaded.mySinceDay = sinceDay;
     }
+    return loaded.myMessages;
   }
 
-  private void doLoadHistorySince(Date since) {
-    File historyDir = getHistoryDir();
-
-    String[] historyFiles = historyDir.list((dir, name) -> name.endsWith(".xml"));
+  private static boolean isDayInRange(String fileName, long sinceDay, long beforeDay) {
+    try {
+      long day = DATE_FORMAT.parse(fileName).getTime();
+      return day >= sinceDay && day < beforeDay;
+    }
+    catch (ParseException e) {
+      // ignore file of wrong format
+    }
+    catch (NumberFormatException e) {
+      // ignore file of wrong format
+    }
+    return false;
+  }
 
-    Arrays.sort(historyFiles);
-    for (int i = historyFiles.length - 1; i >= 0; i--) {
-      String historyFile = historyFiles[i];
-      try {
-        Date date = DATE_FORMAT.parse(historyFile);
-        if (!date.before(since) && !myHistory.hasHistorySince(date)) {
-          DayHistory dayHistory = (DayHistory)XStreamUtil.fromXml(myXStream, myFacade.getCacheDir(), getFileNameForDate(date), false);
-          if (dayHistory != null) {
-            dayHistory.copyTo(myHistory);
-          }
+  /**
+   * @param payloads the payloads of the read records are added to it
+   */
+  private void readMessages(String segmentName, String userKey, List<LocalMessage> result, Set<String> payloads) {
+    try {
+      for (MessageHistoryLog.Record record : myLog.read(segmentName, userKey)) {
+        try {
+          String payload = new String(record.myPayload, StandardCharsets.UTF_8);
+          result.add((LocalMessage)myXStream.fromXML(payload));
+          payloads.add(payload);
+        }
+        catch (RuntimeException e) {
+          LOG.info("Unable to read history message of " + userKey + " from " + segmentName, e);
         }
       }
-      catch (ParseException e) {
-        // ignore file of wrong format
-      }
-      catch (NumberFormatException e) {
-        // ignore file of wrong format
+    }
+    catch (IOException e) {
+      LOG.info("Unable to read history from " + segmentName, e);
+    }
+  }
+
+  /**
+   * Reads the messages of a day file that is not migrated. The records of an interrupted migration that could not be rolled back
+   * are in the log too, so the messages with the payloads read from the log are skipped.
+   */
+  private void readXmlMessages(String historyFile, User user, List<LocalMessage> result, Set<String> payloads) {
+    DayHistory dayHistory = (DayHistory)XStreamUtil.fromXml(myXStream, myFacade.getCacheDir(), HISTORY + '/' + historyFile, false);
+    if (dayHistory == null) {
+      LOG.warn("Unable to read history from " + historyFile);
+      return;
+    }
+
+    for (LocalMessage message : dayHistory.readMessages(user)) {
+      if (!payloads.contains(myXStream.toXML(message))) {
+        result.add(message);
       }
     }
+  }
 
-    myHistory.resort();
+  private MessageHistoryLog.Record createRecord(User user, LocalMessage message) {
+    return new MessageHistoryLog.Record(myUserConverter.toString(user), message.getWhen().getTime(),
+                                        myXStream.toXML(message).getBytes(StandardCharsets.UTF_8));
   }
 
   private void triggerSave() {
@@ -178,51 +250,150 @@ class MessageHistory {
 
   private synchronized void saveHistory() {
     LOG.debug("Start history save");
-    Map<Date, DayHistory> map = getHistory();
-    for (Date date : map.keySet()) {
-      DayHistory dayHistory = map.get(date);
+    appendRecords(myLog, myUnsavedRecords);
+    myUnsavedRecords.clear();
+    LOG.debug("Done history save");
+  }
+
+  private static void appendRecords(MessageHistoryLog log, List<MessageHistoryLog.Record> records) {
+    for (Map.Entry<String, List<MessageHistoryLog.Record>> entry : groupBySegments(records).entrySet()) {
       try {
-        XStreamUtil.toXml(myXStream, myFacade.getCacheDir(), getFileNameForDate(date), dayHistory);
-      } catch (RuntimeException e) {
-        LOG.error("Unable to save dayHistory for " + date + ": " + dayHistory, e);
+        log.append(entry.getKey(), entry.getValue());
+      }
+      catch (IOException e) {
+        LOG.error("Unable to save history to " + entry.getKey(), e);
       }
     }
+  }
 
-    LOG.debug("Done history save");
+  private static Map<String, List<MessageHistoryLog.Record>> groupBySegments(List<MessageHistoryLog.Record> records) {
+    Map<String, List<MessageHistoryLog.Record>> segments = new TreeMap<>();
+    for (MessageHistoryLog.Record record : records) {
+      String segmentName = getSegmentNameForDate(new Date(record.myWhen));
+      segments.computeIfAbsent(segmentName, name -> new ArrayList<>()).add(record);
+    }
+    return segments;
   }
 
-  private synchronized Map<Date, DayHistory> getHistory() {
-    Map<Date, DayHistory> result = new HashMap<>();
+  /**
+   * Converts the day files of the XML history format into the log segments. A day file is deleted only after all its records
+   * are appended to the log. Before appending, the segment lengths are saved to a marker file next to the day file, so if the
+   * migration is interrupted, the appended records are removed and the day file is migrated again on the next start.
+   * Day files that can't be read or migrated are kept, read as before and migrated again on the next start.
+   */
+  private void migrateXmlHistory() {
+    File historyDir = getHistoryDir();
+    MessageHistoryLog log = new MessageHistoryLog(historyDir);
+    rollBackInterruptedMigrations(historyDir, log);
+
+    String[] historyFiles = historyDir.list((dir, name) -> name.endsWith(XML_EXTENSION));
+    if (historyFiles == null) return;
+
+    for (String historyFile : historyFiles) {
+      File marker = new File(historyDir, historyFile + MIGRATION_MARKER_EXTENSION);
+      // the interrupted migration could not be rolled back
+      if (marker.exists()) {
+        myXmlHistoryFiles.add(historyFile);
+        continue;
+      }
+
+      DayHistory dayHistory = (DayHistory)XStreamUtil.fromXml(myXStream, myFacade.getCacheDir(), HISTORY + '/' + historyFile, false);
+      if (dayHistory == null) {
+        LOG.warn("Unable to read history from " + historyFile + ", it is kept in the old format");
+        myXmlHistoryFiles.add(historyFile);
+        continue;
+      }
+
+      List<MessageHistoryLog.Record> records = new ArrayList<>();
+      for (User user : dayHistory.keySet()) {
+        for (LocalMessage message : dayHistory.readMessages(user)) {
+          records.add(createRecord(user, message));
+        }
+      }
+      records.sort(Comparator.comparingLong(record -> record.myWhen));
 
-    for (User user : myHistory.keySet()) {
-      List<LocalMessage> messages = myHistory.get(user);
-      for (LocalMessage message : messages) {
-        DayHistory dayHistory = getDayHistoryFor(message, result);
+      try {
+        Map<String, List<MessageHistoryLog.Record>> segments = groupBySegments(records);
+        writeMigrationMarker(marker, log, segments.keySet());
+        for (Map.Entry<String, List<MessageHistoryLog.Record>> entry : segments.entrySet()) {
+          log.append(entry.getKey(), entry.getValue());
+        }
+      }
+      catch (IOException e) {
+        // the marker is kept, the appended records are removed on the next start
+        LOG.warn("Unable to migrate history from " + historyFile, e);
+        myXmlHistoryFiles.add(historyFile);
+        continue;
+      }
 
-        dayHistory.addMessage(user, message);
+      if (new File(historyDir, historyFile).delete()) {
+        marker.delete();
+      }
+      else {
+        myXmlHistoryFiles.add(historyFile);
       }
     }
+  }
 
-    return result;
+  private static void writeMigrationMarker(File marker, MessageHistoryLog log, Collection<String> segmentNames) throws IOException {
+    StringBuilder text = new StringBuilder();
+    for (String segmentName : segmentNames) {
+      text.append(segmentName).append('\t').append(log.getLength(segmentName)).append('\n');
+    }
+    // the marker is written completely or not at all, a partially written marker could truncate the segments too much
+    File tempMarker = new File(marker.getPath() + ".tmp");
+    try {
+      try (FileOutputStream out = new FileOutputStream(tempMarker)) {
+        out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        out.getFD().sync();
+      }
+      Files.move(tempMarker.toPath(), marker.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    finally {
+      tempMarker.delete();
+    }
   }
 
-  private static DayHistory getDayHistoryFor(LocalMessage message, Map<Date, DayHistory> result) {
-    Date day = TimeUtil.getDay(message.getWhen());
-    DayHistory dayHistory = result.get(day);
-    if (dayHistory == null) {
-      dayHistory = new DayHistory();
-      result.put(day, dayHistory);
+  /**
+   * Truncates the segments to the lengths saved in the markers of the day files which are not deleted yet.
+   */
+  private static void rollBackInterruptedMigrations(File historyDir, MessageHistoryLog log) {
+    String[] markers = historyDir.list((dir, name) -> name.endsWith(MIGRATION_MARKER_EXTENSION));
+    if (markers == null) return;
+
+    for (String markerName : markers) {
+      File marker = new File(historyDir, markerName);
+      String historyFile = markerName.substring(0, markerName.length() - MIGRATION_MARKER_EXTENSION.length());
+      if (new File(historyDir, historyFile).exists()) {
+        try {
+          for (String line : new String(Files.readAllBytes(marker.toPath()), StandardCharsets.UTF_8).split("\n")) {
+            int tab = line.indexOf('\t');
+            if (tab > 0) {
+              log.truncate(line.substring(0, tab), Long.parseLong(line.substring(tab + 1)));
+            }
+          }
+        }
+        catch (IOException | NumberFormatException e) {
+          LOG.warn("Unable to roll back interrupted migration of " + historyFile + ", it is kept in the old format", e);
+          continue;
+        }
+      }
+      marker.delete();
     }
-    return dayHistory;
   }
 
   @NonNls
-  private static String getFileNameForDate(Date date) {
-    return HISTORY + '/' + DATE_FORMAT.format(date) + ".xml";
+  private static String getSegmentNameForDate(Date date) {
+    return DATE_FORMAT.format(TimeUtil.getDay(date)) + MessageHistoryLog.SEGMENT_EXTENSION;
   }
 
   public boolean isEmpty() {
     File historyDir = getHistoryDir();
     return !(historyDir.isDirectory() && historyDir.list().length > 0);
   }
+
+  private static class LoadedHistory {
+    private long mySinceDay = Long.MAX_VALUE;
+    private List<LocalMessage> myMessages = new ArrayList<>();
+  }
 }
@@ -0,0 +1,229 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package jetbrains.communicator.core.impl.dispatcher;
+
+import org.apache.log4j.Logger;
+import org.jetbrains.annotations.NonNls;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Append-only storage of the message history, one segment file per day. Every record has a header with the message
+ * time and the user key, the serialized message follows it:
+ * <pre>
+ *   int payloadLength, long when, short userKeyLength, byte[] userKey (UTF-8), byte[] payload
+ * </pre>
+ * The segment headers are scanned once into a per-user offset index, so the messages of a user can be read
+ * without reading and deserializing the messages of the other users.
+ * <p>
+ * The records appended by this instance are not returned by {@link #read}, their messages are kept in memory by the caller.
+ */
+class MessageHistoryLog {
+  private static final Logger LOG = Logger.getLogger(MessageHistoryLog.class);
+
+  @NonNls static final String SEGMENT_EXTENSION = ".log";
+  private static final int FIXED_HEADER_SIZE = 4 + 8 + 2;
+
+  private final File myDir;
+  private final Map<String, SegmentIndex> myIndices = new HashMap<>();
+
+  MessageHistoryLog(File dir) {
+    myDir = dir;
+  }
+
+  /**
+   * @return names of the segments in ascending order
+   */
+  List<String> getSegmentNames() {
+    String[] names = myDir.list((dir, name) -> name.endsWith(SEGMENT_EXTENSION));
+    if (names == null) return Collections.emptyList();
+    Arrays.sort(names);
+    return Arrays.asList(names);
+  }
+
+  void append(String segmentName, List<Record> records) throws IOException {
+    SegmentIndex index = getIndex(segmentName);
+    try (FileChannel channel = FileChannel.open(getSegmentFile(segmentName).toPath(),
+                                                StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      if (channel.size() > index.myScannedLength) {
+        // a partially written record at the end of the segment
+        channel.truncate(index.myScannedLength);
+      }
+      channel.position(index.myScannedLength);
+
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      for (Record record : records) {
+        byte[] userKey = record.myUserKey.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(record.myPayload.length);
+        out.writeLong(record.myWhen);
+        out.writeShort(userKey.length);
+        out.write(userKey);
+        out.write(record.myPayload);
+      }
+      out.flush();
+      ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    }
+    if (index.mySessionStart < 0) {
+      index.mySessionStart = index.myScannedLength;
+    }
+    scan(segmentName, index);
+  }
+
+  /**
+   * Reads the records of the user in the order of appending.
+   */
+  List<Record> read(String segmentName, String userKey) throws IOException {
+    SegmentIndex index = getIndex(segmentName);
+    UserOffsets offsets = index.myUserOffsets.get(userKey);
+    if (offsets == null) return Collections.emptyList();
+
+    List<Record> result = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(getSegmentFile(segmentName).toPath(), StandardOpenOption.READ)) {
+      int headerSize = FIXED_HEADER_SIZE + userKey.getBytes(StandardCharsets.UTF_8).length;
+      for (int i = 0; i < offsets.mySize; i++) {
+        long offset = offsets.myOffsets[i];
+        if (index.mySessionStart >= 0 && offset >= index.mySessionStart) continue;
+
+        ByteBuffer payload = ByteBuffer.allocate(offsets.myPayloadLengths[i]);
+        long position = offset + headerSize;
+        while (payload.hasRemaining()) {
+          int read = channel.read(payload, position + payload.position());
+          if (read < 0) throw new EOFException(segmentName + ": unexpected end of segment at " + offset);
+        }
+        result.add(new Record(userKey, offsets.myWhens[i], payload.array()));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return length of the complete records in the segment, {@code 0} if there is no such segment
+   */
+  long getLength(String segmentName) throws IOException {
+    return getIndex(segmentName).myScannedLength;
+  }
+
+  /**
+   * Removes the records after {@code length} from the segment, used to undo appending of records that were not committed.
+   */
+  void truncate(String segmentName, long length) throws IOException {
+    myIndices.remove(segmentName);
+    File file = getSegmentFile(segmentName);
+    if (file.length() <= length) return;
+
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+      channel.truncate(length);
+      channel.force(false);
+    }
+  }
+
+  void deleteAll() {
+    myIndices.clear();
+    for (String name : getSegmentNames()) {
+      getSegmentFile(name).delete();
+    }
+  }
+
+  private File getSegmentFile(String segmentName) {
+    return new File(myDir, segmentName);
+  }
+
+  private SegmentIndex getIndex(String segmentName) throws IOException {
+    SegmentIndex index = myIndices.get(segmentName);
+    if (index == null) {
+      index = new SegmentIndex();
+      myIndices.put(segmentName, index);
+    }
+    scan(segmentName, index);
+    return index;
+  }
+
+  /**
+   * Indexes the records appended after the last scan, reading the headers only.
+   */
+  private void scan(String segmentName, SegmentIndex index) throws IOException {
+    File file = getSegmentFile(segmentName);
+    long length = file.length();
+    if (length <= index.myScannedLength) return;
+
+    try (FileInputStream stream = new FileInputStream(file)) {
+      stream.getChannel().position(index.myScannedLength);
+      DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+      long offset = index.myScannedLength;
+      while (offset + FIXED_HEADER_SIZE <= length) {
+        int payloadLength = in.readInt();
+        long when = in.readLong();
+        int userKeyLength = in.readUnsignedShort();
+        long recordEnd = offset + FIXED_HEADER_SIZE + userKeyLength + payloadLength;
+        if (payloadLength < 0 || recordEnd > length) break;
+
+        byte[] userKey = new byte[userKeyLength];
+        in.readFully(userKey);
+        index.myUserOffsets.computeIfAbsent(new String(userKey, StandardCharsets.UTF_8), k -> new UserOffsets())
+          .add(offset, when, payloadLength);
+        skipFully(in, payloadLength);
+        offset = recordEnd;
+      }
+      if (offset < length) {
+        LOG.info("Ignored incomplete record at " + offset + " in " + file);
+      }
+      index.myScannedLength = offset;
+    }
+  }
+
+  private static void skipFully(DataInputStream in, int length) throws IOException {
+    int skipped = 0;
+    while (skipped < length) {
+      int n = in.skipBytes(length - skipped);
+      if (n <= 0) throw new EOFException();
+      skipped += n;
+    }
+  }
+
+  static class Record {
+    final String myUserKey;
+    final long myWhen;
+    final byte[] myPayload;
+
+    Record(String userKey, long when, byte[] payload) {
+      myUserKey = userKey;
+      myWhen = when;
+      myPayload = payload;
+    }
+  }
+
+  private static class SegmentIndex {
+    private final Map<String, UserOffsets> myUserOffsets = new HashMap<>();
+    private long myScannedLength;
+    // offset of the first record appended by this instance
+    private long mySessionStart = -1;
+  }
+
+  private static class UserOffsets {
+    private long[] myOffsets = new long[8];
+    private long[] myWhens = new long[8];
+    private int[] myPayloadLengths = new int[8];
+    private int mySize;
+
+    void add(long offset, long when, int payloadLength) {
+      if (mySize == myOffsets.length) {
+        myOffsets = Arrays.copyOf(myOffsets, mySize * 2);
+        myWhens = Arrays.copyOf(myWhens, mySize * 2);
+        myPayloadLengths = Arrays.copyOf(myPayloadLengths, mySize * 2);
+      }
+      myOffsets[mySize] = offset;
+      myWhens[mySize] = when;
+      myPayloadLengths[mySize] = payloadLength;
+      mySize++;
+    }
+  }
+}
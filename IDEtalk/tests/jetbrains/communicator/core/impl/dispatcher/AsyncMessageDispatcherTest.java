@@ -17,12 +17,15 @@ package jetbrains.communicator.core.impl.dispatcher;
 
 import jetbrains.communicator.core.impl.BaseTestCase;
 import jetbrains.communicator.core.users.User;
+import jetbrains.communicator.core.users.UserEvent;
 import jetbrains.communicator.mock.MockIDEFacade;
 import jetbrains.communicator.mock.MockMessage;
 import jetbrains.communicator.mock.MockUser;
 import jetbrains.communicator.util.WaitFor;
 import org.apache.log4j.Logger;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * @author kir
  */
@@ -137,6 +140,111 @@ public class AsyncMessageDispatcherTest extends BaseTestCase {
     assertEquals("All messages should be delivered", 0, myDispatcher.getUsersWithMessages().length);
   }
 
+  public void testFailingUserDoesNotBlockOthers() {
+    NotifyableMessage blockedMessage = new NotifyableMessage(false, myLog);
+    MockUser failingUser = new MockUser("failing", null);
+    MockUser user = new MockUser("user", null);
+
+    myDispatcher.sendLater(failingUser, blockedMessage);
+    blockedMessage.waitUntilDispatchingStarted();
+    myDispatcher.sendLater(user, new MockMessage(true));
+    waitForDelivery(user);
+
+    assertEquals("Message should be delivered while the delivery to another user hangs", 0,
+        myDispatcher.getPendingMessages(user).length);
+    assertFalse(blockedMessage.isProcessed());
+
+    triggerMessageProcessing(blockedMessage);
+    assertEquals("Failed message should be kept", 1, myDispatcher.getPendingMessages(failingUser).length);
+  }
+
+  public void testFailingUserBacksOff() {
+    final CountingMessage message = new CountingMessage(false);
+    MockUser failingUser = new MockUser("failing", null);
+    MockUser user = new MockUser("user", null);
+
+    myDispatcher.sendLater(failingUser, message);
+    waitForAttempts(message, 1);
+
+    myDispatcher.sendLater(user, new MockMessage(true));
+    waitForDelivery(user);
+    myDispatcher.triggerDelivery();
+    // a premature retry would happen right after the trigger
+    new WaitFor(300) {
+      @Override
+      protected boolean condition() {
+        return message.getAttempts() > 1;
+      }
+    };
+
+    assertEquals("Other user should get the messages", 0, myDispatcher.getPendingMessages(user).length);
+    assertEquals("Failed delivery should not be retried before the retry delay", 1, message.getAttempts());
+
+    waitForAttempts(message, 2);
+    assertEquals("Failed delivery should be retried after the retry delay", 2, message.getAttempts());
+  }
+
+  public void testRecoveredUserQueueDrains() {
+    CountingMessage message1 = new CountingMessage(false);
+    CountingMessage message2 = new CountingMessage(false);
+    MockUser failingUser = new MockUser("failing", null);
+
+    myDispatcher.sendLater(failingUser, message1);
+    myDispatcher.sendLater(failingUser, message2);
+    waitForAttempts(message1, 1);
+    assertEquals("Delivery should stop at the first failure", 0, message2.getAttempts());
+
+    message1.setSuccessful(true);
+    message2.setSuccessful(true);
+    getBroadcaster().fireEvent(new UserEvent.Online(failingUser));
+    waitForDelivery(failingUser);
+
+    assertEquals("All messages should be delivered after the user goes online", 0,
+        myDispatcher.getPendingMessages(failingUser).length);
+    assertEquals(1, message2.getAttempts());
+  }
+
+  private void waitForDelivery(final User user) {
+    new WaitFor(5000) {
+      @Override
+      protected boolean condition() {
+        return myDispatcher.getPendingMessages(user).length == 0;
+      }
+    };
+  }
+
+  private static void waitForAttempts(final CountingMessage message, final int attempts) {
+    new WaitFor(5000) {
+      @Override
+      protected boolean condition() {
+        return message.getAttempts() >= attempts;
+      }
+    };
+  }
+
+  private static class CountingMessage extends MockMessage {
+    private final AtomicInteger myAttempts = new AtomicInteger();
+    private volatile boolean mySuccessful;
+
+    CountingMessage(boolean successfulDelivery) {
+      mySuccessful = successfulDelivery;
+    }
+
+    @Override
+    public boolean send(User user) {
+      myAttempts.incrementAndGet();
+      return mySuccessful;
+    }
+
+    void setSuccessful(boolean successful) {
+      mySuccessful = successful;
+    }
+
+    int getAttempts() {
+      return myAttempts.get();
+    }
+  }
+
   private static class NotifyableMessage extends MockMessage {
     private boolean myDispatchingStarted;
     private boolean myProcessed;
@@ -15,6 +15,7 @@
  */
 package jetbrains.communicator.core.impl.dispatcher;
 
+import com.thoughtworks.xstream.XStream;
 import jetbrains.communicator.core.dispatcher.LocalMessage;
 import jetbrains.communicator.core.dispatcher.Message;
 import jetbrains.communicator.core.impl.BaseTestCase;
@@ -27,11 +28,17 @@ import jetbrains.communicator.mock.MockIDEFacade;
 import jetbrains.communicator.mock.MockMessage;
 import jetbrains.communicator.mock.MockTransport;
 import jetbrains.communicator.util.WatchDog;
+import jetbrains.communicator.util.XStreamUtil;
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Calendar;
 import java.util.Date;
+import java.util.GregorianCalendar;
 
 /**
  * @author kir
@@ -308,4 +315,79 @@ public class LocalMessageDispatcherTest extends BaseTestCase {
     assertEquals(0, myDispatcher.getHistory(myUser, null).length);
     assertTrue(myDispatcher.isHistoryEmpty());
   }
+
+  public void testXmlHistoryMigration_CorruptDayFileKept() throws Exception {
+    File historyDir = new File(myIdeFacade.getCacheDir(), "history");
+    File dayFile = new File(historyDir, "2019-01-01.xml");
+    File corruptDayFile = new File(historyDir, "2019-01-02.xml");
+    writeXmlDayHistory(dayFile, new MockMessage(new GregorianCalendar(2019, Calendar.JANUARY, 1, 12, 0).getTime(), "old text"));
+    Files.write(corruptDayFile.toPath(), "<dayHistory><historyEntries>".getBytes(StandardCharsets.UTF_8));
+
+    LocalMessageDispatcherImpl localMessageDispatcher = createLocalMessageDispatcher();
+    LocalMessage[] messages = localMessageDispatcher.getHistory(myUser, null);
+    assertEquals(1, messages.length);
+    assertEquals("old text", ((MockMessage) messages[0]).getMessage());
+    assertFalse("Migrated day file should be deleted", dayFile.exists());
+    assertTrue("Unreadable day file should be kept", corruptDayFile.exists());
+
+    localMessageDispatcher = createLocalMessageDispatcher();
+    assertEquals("Migrated messages should not be duplicated", 1, localMessageDispatcher.getHistory(myUser, null).length);
+    assertTrue(corruptDayFile.exists());
+  }
+
+  public void testXmlHistoryMigration_InterruptedMigrationRepeated() throws Exception {
+    File historyDir = new File(myIdeFacade.getCacheDir(), "history");
+    File dayFile = new File(historyDir, "2019-01-01.xml");
+    writeXmlDayHistory(dayFile, new MockMessage(new GregorianCalendar(2019, Calendar.JANUARY, 1, 12, 0).getTime(), "old text"));
+    byte[] dayFileContent = Files.readAllBytes(dayFile.toPath());
+
+    createLocalMessageDispatcher();
+    assertFalse(dayFile.exists());
+
+    // as if the migration was interrupted after appending the records and before deleting the day file
+    Files.write(dayFile.toPath(), dayFileContent);
+    Files.write(new File(historyDir, "2019-01-01.xml.migrating").toPath(), "2019-01-01.log\t0\n".getBytes(StandardCharsets.UTF_8));
+
+    LocalMessageDispatcherImpl localMessageDispatcher = createLocalMessageDispatcher();
+    assertEquals("Migrated messages should not be duplicated", 1, localMessageDispatcher.getHistory(myUser, null).length);
+    assertFalse(dayFile.exists());
+    assertFalse(new File(historyDir, "2019-01-01.xml.migrating").exists());
+  }
+
+  public void testXmlHistoryMigration_NotRolledBackDayFileRead() throws Exception {
+    File historyDir = new File(myIdeFacade.getCacheDir(), "history");
+    File dayFile = new File(historyDir, "2019-01-01.xml");
+    MockMessage migratedMessage = new MockMessage(new GregorianCalendar(2019, Calendar.JANUARY, 1, 12, 0).getTime(), "old text");
+    writeXmlDayHistory(dayFile, migratedMessage);
+
+    createLocalMessageDispatcher();
+    assertFalse(dayFile.exists());
+
+    // as if the migration was interrupted after appending a part of the records and the marker can't be read
+    writeXmlDayHistory(dayFile, migratedMessage,
+                       new MockMessage(new GregorianCalendar(2019, Calendar.JANUARY, 1, 13, 0).getTime(), "not migrated text"));
+    File marker = new File(historyDir, "2019-01-01.xml.migrating");
+    Files.write(marker.toPath(), "2019-01-01.log\tbroken\n".getBytes(StandardCharsets.UTF_8));
+
+    LocalMessage[] messages = createLocalMessageDispatcher().getHistory(myUser, null);
+    assertEquals("Messages of the day file should be read and not duplicated", 2, messages.length);
+    assertEquals("old text", ((MockMessage) messages[0]).getMessage());
+    assertEquals("not migrated text", ((MockMessage) messages[1]).getMessage());
+    assertTrue(dayFile.exists());
+    assertTrue(marker.exists());
+  }
+
+  private void writeXmlDayHistory(File file, LocalMessage... messages) throws IOException {
+    XStream xStream = XStreamUtil.createXStream();
+    xStream.alias("user", UserImpl.class);
+    xStream.alias("dayHistory", DayHistory.class);
+    xStream.aliasField("historyEntries", DayHistory.class, "myData");
+    xStream.registerConverter(new UserConverter(myUserModel));
+
+    DayHistory dayHistory = new DayHistory();
+    for (LocalMessage message : messages) {
+      dayHistory.addMessage(myUser, message);
+    }
+    Files.write(file.toPath(), xStream.toXML(dayHistory).getBytes(StandardCharsets.UTF_8));
+  }
 }
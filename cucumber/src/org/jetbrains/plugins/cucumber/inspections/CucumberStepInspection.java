@@ -1,6 +1,9 @@
 package org.jetbrains.plugins.cucumber.inspections;
 
+import com.intellij.codeInspection.LocalInspectionToolSession;
 import com.intellij.codeInspection.ProblemsHolder;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Key;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiElementVisitor;
 import com.intellij.psi.PsiReference;
@@ -13,10 +16,15 @@ import org.jetbrains.plugins.cucumber.steps.AbstractStepDefinition;
 import org.jetbrains.plugins.cucumber.steps.CucumberStepHelper;
 import org.jetbrains.plugins.cucumber.steps.reference.CucumberStepReference;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * @author yole
  */
 public class CucumberStepInspection extends GherkinInspection {
+  private static final Logger LOG = Logger.getInstance(CucumberStepInspection.class);
+  private static final Key<Long> INSPECTION_START_KEY = Key.create("CucumberStepInspection.start");
+
   @Override
   public boolean isEnabledByDefault() {
     return true;
@@ -28,6 +36,22 @@ public class CucumberStepInspection extends GherkinInspection {
     return "CucumberUndefinedStep";
   }
 
+  @Override
+  public void inspectionStarted(@NotNull LocalInspectionToolSession session, boolean isOnTheFly) {
+    if (LOG.isDebugEnabled()) {
+      session.putUserData(INSPECTION_START_KEY, System.nanoTime());
+    }
+  }
+
+  @Override
+  public void inspectionFinished(@NotNull LocalInspectionToolSession session, @NotNull ProblemsHolder problemsHolder) {
+    Long start = session.getUserData(INSPECTION_START_KEY);
+    if (start != null) {
+      LOG.debug("Steps of " + session.getFile().getName() + " resolved in " +
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+  }
+
   @NotNull
   @Override
   public PsiElementVisitor buildVisitor(@NotNull final ProblemsHolder holder, final boolean isOnTheFly) {
@@ -8,6 +8,9 @@ import com.intellij.openapi.module.ModuleUtilCore;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiDirectory;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.plugins.cucumber.BDDFrameworkType;
@@ -75,10 +78,11 @@ public class CucumberStepHelper {
 
     Map<Class<? extends AbstractStepDefinition>, AbstractStepDefinition> definitionsByClass =
       new HashMap<>();
-    List<AbstractStepDefinition> allSteps = loadStepsFor(featureFile, module);
+    List<AbstractStepDefinition> matching =
+      getStepDefinitionIndex(featureFile, module).findMatching(Collections.singletonList(substitutedName));
 
-    for (AbstractStepDefinition stepDefinition : allSteps) {
-      if (stepDefinition != null && stepDefinition.matches(substitutedName) && stepDefinition.supportsStep(step)) {
+    for (AbstractStepDefinition stepDefinition : matching) {
+      if (stepDefinition.supportsStep(step)) {
         final Pattern currentLongestPattern = getPatternByDefinition(definitionsByClass.get(stepDefinition.getClass()));
         final Pattern newPattern = getPatternByDefinition(stepDefinition);
         final int newPatternLength = ((newPattern != null) ? newPattern.pattern().length() : -1);
@@ -124,6 +128,15 @@ public class CucumberStepHelper {
   }
 
 
+  /**
+   * @return step definitions available in the feature file, cached until the next PSI modification
+   */
+  @NotNull
+  public static StepDefinitionPrefixIndex getStepDefinitionIndex(@NotNull PsiFile featureFile, @NotNull Module module) {
+    return CachedValuesManager.getCachedValue(featureFile, () -> CachedValueProvider.Result.create(
+      new StepDefinitionPrefixIndex(loadStepsFor(featureFile, module)), PsiModificationTracker.MODIFICATION_COUNT));
+  }
+
   private static List<AbstractStepDefinition> loadStepsFor(@Nullable final PsiFile featureFile, @NotNull final Module module) {
     ArrayList<AbstractStepDefinition> result = new ArrayList<>();
 
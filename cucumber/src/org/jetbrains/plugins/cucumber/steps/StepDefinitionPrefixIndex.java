@@ -0,0 +1,301 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.jetbrains.plugins.cucumber.steps;
+
+import com.intellij.openapi.util.text.StringUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Step definitions grouped by the literal text their patterns start with. Only the definitions whose prefix is
+ * a prefix of the step name are returned as candidates, so a step is checked by regexp against a few definitions
+ * instead of all of them.
+ * <p>
+ * The definitions with anchored patterns are grouped by the first word of the prefix, the definitions with shorter
+ * prefixes are checked by {@code startsWith}. The definitions with not anchored patterns are candidates if the step
+ * name contains the longest literal text every match contains, the definitions with malformed patterns are always candidates.
+ * <p>
+ * The index is built for all steps of a feature file, the matching definitions are remembered for every step name,
+ * so the steps with the same text, the annotator and the inspections share a single regexp check.
+ */
+public final class StepDefinitionPrefixIndex {
+  private final List<AbstractStepDefinition> myDefinitions;
+  private final String[] myPrefixes;
+  private final boolean[] myIgnoreCase;
+  private final Map<String, int[]> myByFirstWord = new HashMap<>();
+  private final int[] myShortPrefixed;
+  private final int[] myUnanchored;
+  private final int[] myUnindexed;
+  private final Map<String, BitSet> myMatching = new ConcurrentHashMap<>();
+
+  public StepDefinitionPrefixIndex(@NotNull List<AbstractStepDefinition> definitions) {
+    myDefinitions = definitions;
+    myPrefixes = new String[definitions.size()];
+    myIgnoreCase = new boolean[definitions.size()];
+
+    Map<String, List<Integer>> byFirstWord = new HashMap<>();
+    List<Integer> shortPrefixed = new ArrayList<>();
+    List<Integer> unanchored = new ArrayList<>();
+    List<Integer> unindexed = new ArrayList<>();
+    for (int i = 0; i < definitions.size(); i++) {
+      AbstractStepDefinition definition = definitions.get(i);
+      Pattern pattern = definition == null ? null : definition.getPattern();
+      String prefix = pattern == null ? null : getLiteralPrefix(pattern.pattern());
+      if (prefix == null) {
+        String literal = pattern == null ? null : getRequiredLiteral(pattern.pattern());
+        if (literal == null) {
+          unindexed.add(i);
+        }
+        else {
+          myPrefixes[i] = literal;
+          myIgnoreCase[i] = (pattern.flags() & Pattern.CASE_INSENSITIVE) != 0;
+          unanchored.add(i);
+        }
+        continue;
+      }
+
+      myPrefixes[i] = prefix;
+      myIgnoreCase[i] = (pattern.flags() & Pattern.CASE_INSENSITIVE) != 0;
+      int wordEnd = prefix.indexOf(' ');
+      if (wordEnd > 0) {
+        byFirstWord.computeIfAbsent(StringUtil.toLowerCase(prefix.substring(0, wordEnd)), k -> new ArrayList<>()).add(i);
+      }
+      else {
+        shortPrefixed.add(i);
+      }
+    }
+
+    for (Map.Entry<String, List<Integer>> entry : byFirstWord.entrySet()) {
+      myByFirstWord.put(entry.getKey(), toArray(entry.getValue()));
+    }
+    myShortPrefixed = toArray(shortPrefixed);
+    myUnanchored = toArray(unanchored);
+    myUnindexed = toArray(unindexed);
+  }
+
+  @NotNull
+  public List<AbstractStepDefinition> getDefinitions() {
+    return myDefinitions;
+  }
+
+  /**
+   * @return the definitions matching any of the step names, in the order of {@link #getDefinitions()}
+   */
+  @NotNull
+  public List<AbstractStepDefinition> findMatching(@NotNull Collection<String> stepNames) {
+    BitSet matching = new BitSet(myDefinitions.size());
+    for (String stepName : stepNames) {
+      matching.or(myMatching.computeIfAbsent(stepName, this::match));
+    }
+
+    List<AbstractStepDefinition> result = new ArrayList<>(matching.cardinality());
+    for (int i = matching.nextSetBit(0); i >= 0; i = matching.nextSetBit(i + 1)) {
+      result.add(myDefinitions.get(i));
+    }
+    return result;
+  }
+
+  @NotNull
+  private BitSet match(@NotNull String stepName) {
+    BitSet result = getCandidates(stepName);
+    for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+      AbstractStepDefinition definition = myDefinitions.get(i);
+      if (definition == null || !definition.matches(stepName)) {
+        result.clear(i);
+      }
+    }
+    return result;
+  }
+
+  @NotNull
+  BitSet getCandidates(@NotNull String stepName) {
+    BitSet candidates = new BitSet(myDefinitions.size());
+    for (int i : myUnindexed) {
+      candidates.set(i);
+    }
+    for (int i : myUnanchored) {
+      if (myIgnoreCase[i] ? StringUtil.containsIgnoreCase(stepName, myPrefixes[i]) : stepName.contains(myPrefixes[i])) {
+        candidates.set(i);
+      }
+    }
+    addCandidates(stepName, myShortPrefixed, candidates);
+    int wordEnd = stepName.indexOf(' ');
+    if (wordEnd > 0) {
+      int[] byWord = myByFirstWord.get(StringUtil.toLowerCase(stepName.substring(0, wordEnd)));
+      if (byWord != null) {
+        addCandidates(stepName, byWord, candidates);
+      }
+    }
+    return candidates;
+  }
+
+  private void addCandidates(@NotNull String stepName, int @NotNull [] indices, @NotNull BitSet candidates) {
+    for (int i : indices) {
+      String prefix = myPrefixes[i];
+      if (stepName.regionMatches(myIgnoreCase[i], 0, prefix, 0, prefix.length())) {
+        candidates.set(i);
+      }
+    }
+  }
+
+  /**
+   * Returns the literal text every match of the pattern starts with.
+   *
+   * @return the prefix (possibly empty) or {@code null} if the pattern is not anchored to the beginning of the text
+   * or has top level alternatives
+   */
+  @Nullable
+  static String getLiteralPrefix(@NotNull String regex) {
+    if (!regex.startsWith("^") || hasTopLevelAlternatives(regex)) {
+      return null;
+    }
+    StringBuilder prefix = new StringBuilder();
+    readLiteral(regex, 1, prefix);
+    return prefix.toString();
+  }
+
+  /**
+   * Returns the longest literal text outside of groups and character classes, every match of the pattern contains it.
+   *
+   * @return the literal or {@code null} if there is no such text, the pattern has top level alternatives or inline flags
+   */
+  @Nullable
+  static String getRequiredLiteral(@NotNull String regex) {
+    if (hasTopLevelAlternatives(regex) || hasInlineFlags(regex)) {
+      return null;
+    }
+
+    String result = "";
+    int depth = 0;
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (depth == 0 && c != '(' && c != '[') {
+        StringBuilder literal = new StringBuilder();
+        int end = readLiteral(regex, i, literal);
+        if (literal.length() > result.length()) {
+          result = literal.toString();
+        }
+        if (end > i) {
+          i = end;
+          continue;
+        }
+      }
+
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+      if (c == '[') {
+        i = skipCharacterClass(regex, i);
+        continue;
+      }
+      if (c == '{') {
+        // the bounds of a quantifier
+        int end = regex.indexOf('}', i);
+        i = end < 0 ? regex.length() : end + 1;
+        continue;
+      }
+      if (c == '(') depth++;
+      if (c == ')') depth--;
+      i++;
+    }
+    return result.isEmpty() ? null : result;
+  }
+
+  /**
+   * Appends the literal characters starting at {@code start} which are not followed by an optional quantifier.
+   *
+   * @return the offset after the last appended character
+   */
+  private static int readLiteral(@NotNull String regex, int start, @NotNull StringBuilder literal) {
+    int i = start;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      int length = 1;
+      if (c == '\\') {
+        if (i + 1 >= regex.length() || Character.isLetterOrDigit(regex.charAt(i + 1))) break;
+        c = regex.charAt(i + 1);
+        length = 2;
+      }
+      else if (".[]()|{}*+?^$".indexOf(c) >= 0) {
+        break;
+      }
+
+      int next = i + length;
+      if (next < regex.length() && "?*{".indexOf(regex.charAt(next)) >= 0) {
+        // the character is optional
+        break;
+      }
+      literal.append(c);
+      i = next;
+      if (next < regex.length() && regex.charAt(next) == '+') break;
+    }
+    return i;
+  }
+
+  private static int skipCharacterClass(@NotNull String regex, int start) {
+    for (int i = start + 1; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i++;
+      }
+      else if (c == ']' && i > start + 1) {
+        return i + 1;
+      }
+    }
+    return regex.length();
+  }
+
+  private static boolean hasInlineFlags(@NotNull String regex) {
+    for (int i = 0; i + 2 < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i++;
+      }
+      else if (c == '(' && regex.charAt(i + 1) == '?') {
+        char next = regex.charAt(i + 2);
+        if (Character.isLetter(next) || next == '-') return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean hasTopLevelAlternatives(@NotNull String regex) {
+    int depth = 0;
+    boolean inClass = false;
+    for (int i = 0; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i++;
+      }
+      else if (inClass) {
+        if (c == ']') inClass = false;
+      }
+      else if (c == '[') {
+        inClass = true;
+      }
+      else if (c == '(') {
+        depth++;
+      }
+      else if (c == ')') {
+        depth--;
+      }
+      else if (c == '|' && depth == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int @NotNull [] toArray(@NotNull List<Integer> list) {
+    int[] result = new int[list.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = list.get(i);
+    }
+    return result;
+  }
+}
@@ -7,9 +7,6 @@ import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.psi.*;
 import com.intellij.psi.impl.source.resolve.ResolveCache;
-import com.intellij.psi.util.CachedValueProvider;
-import com.intellij.psi.util.CachedValuesManager;
-import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.util.IncorrectOperationException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -108,24 +105,14 @@ public class CucumberStepReference implements PsiPolyVariantReference {
     }
 
     PsiFile featureFile = myStep.getContainingFile();
-    List<AbstractStepDefinition> stepDefinitions = CachedValuesManager.getCachedValue(featureFile, () -> {
-      List<AbstractStepDefinition> allStepDefinition = new ArrayList<>();
-      for (CucumberJvmExtensionPoint e : frameworks) {
-        allStepDefinition.addAll(e.loadStepsFor(featureFile, module));
-      }
-      return CachedValueProvider.Result.create(allStepDefinition, PsiModificationTracker.MODIFICATION_COUNT);
-    });
-    
+    List<AbstractStepDefinition> matching =
+      CucumberStepHelper.getStepDefinitionIndex(featureFile, module).findMatching(stepVariants);
+
     List<PsiElement> resolvedElements = new ArrayList<>();
-    for (final AbstractStepDefinition stepDefinition : stepDefinitions) {
-      if (stepDefinition.supportsStep(myStep)) {
-        for (String stepVariant : stepVariants) {
-          PsiElement element = stepDefinition.getElement();
-          if (stepDefinition.matches(stepVariant) && element != null && !resolvedElements.contains(element)) {
-            resolvedElements.add(element);
-            break;
-          }
-        }
+    for (final AbstractStepDefinition stepDefinition : matching) {
+      PsiElement element = stepDefinition.getElement();
+      if (stepDefinition.supportsStep(myStep) && element != null && !resolvedElements.contains(element)) {
+        resolvedElements.add(element);
       }
     }
 
@@ -0,0 +1,47 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package org.jetbrains.plugins.cucumber.steps;
+
+import org.junit.Test;
+
+import static org.jetbrains.plugins.cucumber.steps.StepDefinitionPrefixIndex.getLiteralPrefix;
+import static org.jetbrains.plugins.cucumber.steps.StepDefinitionPrefixIndex.getRequiredLiteral;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class StepDefinitionPrefixIndexTest {
+  @Test
+  public void testLiteralPrefix() {
+    assertEquals("I have ", getLiteralPrefix("^I have (\\d+) cukes in my belly$"));
+    assertEquals("I have 5 cukes", getLiteralPrefix("^I have 5 cukes$"));
+    assertEquals("the price is 5.", getLiteralPrefix("^the price is 5\\.(\\d+)$"));
+    assertEquals("", getLiteralPrefix("^(?i)I have cukes$"));
+  }
+
+  @Test
+  public void testLiteralPrefixWithQuantifiers() {
+    assertEquals("I have 5 cucumber", getLiteralPrefix("^I have 5 cucumbers?$"));
+    assertEquals("I have 5 cucumber", getLiteralPrefix("^I have 5 cucumber(?:s)?$"));
+    assertEquals("I h", getLiteralPrefix("^I ha*ve$"));
+    assertEquals("I haa", getLiteralPrefix("^I haa+ve$"));
+    assertEquals("I ", getLiteralPrefix("^I \\w+$"));
+  }
+
+  @Test
+  public void testNoLiteralPrefix() {
+    assertNull(getLiteralPrefix("I have (\\d+) cukes"));
+    assertNull(getLiteralPrefix("^I have cukes|^I have cucumbers"));
+    assertEquals("I have ", getLiteralPrefix("^I have (?:cukes|cucumbers)$"));
+    assertEquals("I have ", getLiteralPrefix("^I have [|a]$"));
+  }
+
+  @Test
+  public void testRequiredLiteral() {
+    assertEquals(" cukes in my belly", getRequiredLiteral("I have (\\d+) cukes in my belly"));
+    assertEquals(" in my belly", getRequiredLiteral("I have (\\d+) cucumbers? in my belly"));
+    assertEquals("I have ", getRequiredLiteral("I have x{2}"));
+    assertEquals("price is 5.", getRequiredLiteral("price is 5\\.[0-9]+"));
+    assertNull(getRequiredLiteral("(\\d+)"));
+    assertNull(getRequiredLiteral("I have cukes|I have cucumbers"));
+    assertNull(getRequiredLiteral("I have (?i)cukes"));
+  }
+}
@@ -25,6 +25,7 @@ import com.intellij.flex.refactoring.*;
 import com.intellij.flex.resolver.ActionScriptResolveTest;
 import com.intellij.flex.resolver.FlexCssNavigationTest;
 import com.intellij.flex.uml.FlashUmlTest;
+import com.intellij.javascript.flex.compiled.SwfFileStubCacheTest;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
@@ -109,6 +110,9 @@ public class FlexTestSuite {
     testSuite.addTestSuite(ActionScriptParsingTest.class);
     testSuite.addTestSuite(FlexImporterTest.class);
 
+    //com.intellij.javascript.flex.compiled.*
+    testSuite.addTestSuite(SwfFileStubCacheTest.class);
+
     //com.intellij.flex.projectView.*
     testSuite.addTestSuite(FlexProjectViewTest.class);
 
@@ -0,0 +1,87 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.javascript.flex.compiled;
+
+import com.intellij.flex.parser.FlexImporterTest;
+import com.intellij.lang.javascript.JavaScriptSupportLoader;
+import com.intellij.lang.javascript.flex.importer.FlexImporter;
+import com.intellij.lang.javascript.psi.stubs.impl.JSFileCachedData;
+import com.intellij.lang.javascript.psi.stubs.impl.JSFileStubImpl;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.psi.impl.DebugUtil;
+import com.intellij.psi.stubs.PsiFileStub;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class SwfFileStubCacheTest extends BasePlatformTestCase {
+  private static final int STUB_VERSION = 1;
+
+  public void testRoundTrip() throws IOException {
+    byte[] content = loadLibrarySwf("PlayerGlobal10.swc");
+    assertNotNull(SwfFileStubCache.getCacheFile(content, STUB_VERSION));
+
+    JSFileStubImpl stub = new JSFileStubImpl(JavaScriptSupportLoader.ECMA_SCRIPT_L4, new JSFileCachedData());
+    FlexImporter.buildStubsInterfaceFromBytes(content, stub);
+
+    File cacheFile = SwfFileStubCache.getCacheFile(createCacheDir(), content, STUB_VERSION);
+    assertNull(SwfFileStubCache.get(cacheFile));
+
+    SwfFileStubCache.put(cacheFile, stub);
+    assertTrue(cacheFile.isFile());
+
+    PsiFileStub cachedStub = SwfFileStubCache.get(cacheFile);
+    assertNotNull(cachedStub);
+    assertEquals(DebugUtil.stubTreeToString(stub), DebugUtil.stubTreeToString(cachedStub));
+  }
+
+  public void testSmallSwfNotCached() throws IOException {
+    assertNull(SwfFileStubCache.getCacheFile(loadLibrarySwf("HelloWorld.swc"), STUB_VERSION));
+  }
+
+  public void testCorruptedEntryDeleted() throws IOException {
+    byte[] content = loadLibrarySwf("PlayerGlobal10.swc");
+    File cacheFile = SwfFileStubCache.getCacheFile(createCacheDir(), content, STUB_VERSION);
+    FileUtil.writeToFile(cacheFile, "not a stub");
+
+    assertNull(SwfFileStubCache.get(cacheFile));
+    assertFalse(cacheFile.exists());
+  }
+
+  public void testLeastRecentlyUsedEvicted() throws IOException {
+    File versionDir = new File(createCacheDir(), String.valueOf(STUB_VERSION));
+    File[] files = new File[4];
+    for (int i = 0; i < files.length; i++) {
+      files[i] = new File(versionDir, "0" + i + File.separator + "0" + i + "hash");
+      FileUtil.writeToFile(files[i], "0123456789");
+      assertTrue(files[i].setLastModified(1_000_000_000_000L + i * 1000));
+    }
+
+    SwfFileStubCache.evictLeastRecentlyUsed(versionDir, 40, 20);
+    for (File file : files) {
+      assertTrue(file.isFile());
+    }
+
+    SwfFileStubCache.evictLeastRecentlyUsed(versionDir, 30, 20);
+    assertFalse(files[0].exists());
+    assertFalse(files[1].exists());
+    assertTrue(files[2].isFile());
+    assertTrue(files[3].isFile());
+  }
+
+  private File createCacheDir() throws IOException {
+    return FileUtil.createTempDirectory(getTestName(true), null);
+  }
+
+  private static byte[] loadLibrarySwf(String swcName) throws IOException {
+    try (ZipFile zipFile = new ZipFile(new File(FlexImporterTest.getTestDataPath() + swcName))) {
+      ZipEntry zipEntry = zipFile.getEntry("library.swf");
+      try (InputStream inputStream = zipFile.getInputStream(zipEntry)) {
+        return FileUtil.loadBytes(inputStream, (int)zipEntry.getSize());
+      }
+    }
+  }
+}
@@ -17,7 +17,7 @@ import com.intellij.psi.stubs.StubElement;
 import com.intellij.util.indexing.FileContent;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayInputStream;
+import java.io.File;
 
 /**
  * @author Maxim.Mossienko
@@ -37,14 +37,25 @@ public class SwfFileStubBuilder implements BinaryFileStubBuilder {
   }
 
   static PsiFileStub buildFileStub(VirtualFile file, byte[] content) {
+    File cacheFile = SwfFileStubCache.getCacheFile(content, getVersion());
+    if (cacheFile != null) {
+      PsiFileStub cachedStub = SwfFileStubCache.get(cacheFile);
+      if (cachedStub != null) {
+        return cachedStub;
+      }
+    }
+
     PsiFileStubImpl stub = new JSFileStubImpl(JavaScriptSupportLoader.ECMA_SCRIPT_L4, new JSFileCachedData());
     try {
 
-      FlexImporter.buildStubsInterfaceFromStream(
-        new ByteArrayInputStream(content),
+      FlexImporter.buildStubsInterfaceFromBytes(
+        content,
         stub
       );
 
+      if (cacheFile != null) {
+        SwfFileStubCache.put(cacheFile, stub);
+      }
     } catch (Exception ex) {
       Logger.getInstance(SwfFileStubBuilder.class.getName()).warn(file.getPath(), ex);
     }
@@ -54,6 +65,10 @@ public class SwfFileStubBuilder implements BinaryFileStubBuilder {
 
   @Override
   public int getStubVersion() {
+    return getVersion();
+  }
+
+  private static int getVersion() {
     return JSFileElementType.getVersion() + VERSION;
   }
 }
\ No newline at end of file
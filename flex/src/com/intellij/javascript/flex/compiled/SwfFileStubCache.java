@@ -0,0 +1,164 @@
+// Copyright 2000-2020 JetBrains s.r.o. Use of this source code is governed by the Apache 2.0 license that can be found in the LICENSE file.
+package com.intellij.javascript.flex.compiled;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.stubs.PsiFileStub;
+import com.intellij.psi.stubs.SerializationManagerEx;
+import com.intellij.psi.stubs.Stub;
+import com.intellij.psi.stubs.StubUpdatingIndex;
+import com.intellij.util.indexing.IndexingStamp;
+import com.intellij.util.io.DigestUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk cache of the stub trees built from the library SWFs, keyed by the SWF content hash. The same SWCs are usually
+ * attached to many modules and projects (Flex SDKs, artifacts copied by build tools), so the cache allows to skip inflating
+ * and parsing of the bytecode when such a library is indexed again.
+ * <p>
+ * The cache is kept in its own directory under the system path. The stubs are stored in the format of {@link SerializationManagerEx},
+ * the serializer ids it writes are valid only as long as the stub index built with them, so the entries are kept in a directory named
+ * after the stub version and the creation stamp of the stub index, and the directories of other versions are deleted.
+ * The cache size is limited, the least recently used entries are evicted.
+ */
+final class SwfFileStubCache {
+  private static final Logger LOG = Logger.getInstance(SwfFileStubCache.class.getName());
+
+  private static final String CACHE_DIR_NAME = "flex.swf.stubs";
+  // small SWFs are parsed faster than the cached stub is read
+  private static final int MIN_CACHED_CONTENT_LENGTH = 64 * 1024;
+  private static final long MAX_CACHE_SIZE = 256L * 1024 * 1024;
+  // entries are evicted down to this size, so that eviction doesn't run again after each added entry
+  private static final long EVICTED_CACHE_SIZE = MAX_CACHE_SIZE * 3 / 4;
+  // the cache size is checked on the first write in the session and then each time this many bytes are written
+  private static final long SIZE_CHECK_INTERVAL = MAX_CACHE_SIZE / 8;
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+  private static final AtomicBoolean ourOutdatedVersionsDeleted = new AtomicBoolean();
+  private static final AtomicLong ourBytesWrittenSinceSizeCheck = new AtomicLong(SIZE_CHECK_INTERVAL);
+  private static final AtomicBoolean ourEvictionRunning = new AtomicBoolean();
+
+  private SwfFileStubCache() {
+  }
+
+  /**
+   * @return the file that keeps the stub built from the SWF content, or {@code null} if the SWF is too small to be worth caching
+   */
+  static @Nullable File getCacheFile(byte @NotNull [] content, int stubVersion) {
+    if (content.length < MIN_CACHED_CONTENT_LENGTH) return null;
+    String version = stubVersion + "-" + IndexingStamp.getIndexCreationStamp(StubUpdatingIndex.INDEX_ID);
+    return getCacheFile(new File(PathManager.getSystemPath(), CACHE_DIR_NAME), content, version);
+  }
+
+  static @NotNull File getCacheFile(@NotNull File cacheDir, byte @NotNull [] content, int stubVersion) {
+    return getCacheFile(cacheDir, content, String.valueOf(stubVersion));
+  }
+
+  private static @NotNull File getCacheFile(@NotNull File cacheDir, byte @NotNull [] content, @NotNull String version) {
+    String hash = StringUtil.toHexString(DigestUtil.sha1().digest(content));
+    return new File(new File(cacheDir, version), hash.substring(0, 2) + File.separator + hash);
+  }
+
+  static @Nullable PsiFileStub get(@NotNull File file) {
+    if (!file.isFile()) return null;
+
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      Stub stub = SerializationManagerEx.getInstanceEx().deserialize(in);
+      if (stub instanceof PsiFileStub) {
+        // the modification time is the last access time for eviction
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(System.currentTimeMillis());
+        return (PsiFileStub)stub;
+      }
+    }
+    catch (Exception e) {
+      LOG.info("Failed to read cached SWF stubs from " + file.getPath(), e);
+    }
+    FileUtil.delete(file);
+    return null;
+  }
+
+  static void put(@NotNull File file, @NotNull PsiFileStub stub) {
+    File versionDir = file.getParentFile().getParentFile();
+    deleteOutdatedVersions(versionDir);
+
+    File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX + Thread.currentThread().getId());
+    try {
+      FileUtil.createParentDirs(tempFile);
+      try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+        SerializationManagerEx.getInstanceEx().serialize(stub, out);
+      }
+      if (!tempFile.renameTo(file) && !file.isFile()) {
+        LOG.info("Failed to store cached SWF stubs to " + file.getPath());
+      }
+    }
+    catch (Exception e) {
+      LOG.info("Failed to store cached SWF stubs to " + file.getPath(), e);
+    }
+    finally {
+      FileUtil.delete(tempFile);
+    }
+
+    if (ourBytesWrittenSinceSizeCheck.addAndGet(file.length()) >= SIZE_CHECK_INTERVAL) {
+      evictLeastRecentlyUsed(versionDir, MAX_CACHE_SIZE, EVICTED_CACHE_SIZE);
+    }
+  }
+
+  private static void deleteOutdatedVersions(@NotNull File versionDir) {
+    if (!ourOutdatedVersionsDeleted.compareAndSet(false, true)) return;
+
+    File[] versionDirs = versionDir.getParentFile().listFiles();
+    if (versionDirs == null) return;
+    for (File dir : versionDirs) {
+      if (!FileUtil.filesEqual(dir, versionDir)) {
+        FileUtil.delete(dir);
+      }
+    }
+  }
+
+  /**
+   * If the entries in the version directory take more than {@code maxSize} bytes, deletes the least recently used ones until
+   * they take at most {@code evictedSize} bytes.
+   */
+  static void evictLeastRecentlyUsed(@NotNull File versionDir, long maxSize, long evictedSize) {
+    if (!ourEvictionRunning.compareAndSet(false, true)) return;
+    try {
+      ourBytesWrittenSinceSizeCheck.set(0);
+
+      // the modification time is read once, the entries read meanwhile are touched concurrently
+      Map<File, Long> files = new HashMap<>();
+      long size = 0;
+      File[] prefixDirs = versionDir.listFiles();
+      if (prefixDirs == null) return;
+      for (File prefixDir : prefixDirs) {
+        File[] prefixFiles = prefixDir.listFiles();
+        if (prefixFiles == null) continue;
+        for (File file : prefixFiles) {
+          if (file.getName().contains(TEMP_FILE_SUFFIX)) continue;
+          files.put(file, file.lastModified());
+          size += file.length();
+        }
+      }
+      if (size <= maxSize) return;
+
+      List<File> leastRecentlyUsedFirst = new ArrayList<>(files.keySet());
+      leastRecentlyUsedFirst.sort(Comparator.comparingLong(files::get));
+      for (File file : leastRecentlyUsedFirst) {
+        if (size <= evictedSize) break;
+        size -= file.length();
+        FileUtil.delete(file);
+      }
+    }
+    finally {
+      ourEvictionRunning.set(false);
+    }
+  }
+}
@@ -37,6 +37,14 @@ class DebuggerCommand {
     return myStartVMState;
   }
 
+  /**
+   * @return true if the command neither resumes the VM nor changes the program state, so the responses to the evaluations
+   * cached since the VM was suspended remain valid when it is sent
+   */
+  boolean isReadOnly() {
+    return false;
+  }
+
   CommandOutputProcessingMode onTextAvailable(@NonNls String s) {
     assert myOutputProcessingType != CommandOutputProcessingType.NO_PROCESSING;
     return CommandOutputProcessingMode.DONE;
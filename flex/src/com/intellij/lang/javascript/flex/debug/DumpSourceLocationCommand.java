@@ -10,6 +10,11 @@ class DumpSourceLocationCommand extends DebuggerCommand {
     myFlexDebugProcess = flexDebugProcess;
   }
 
+  @Override
+  boolean isReadOnly() {
+    return true;
+  }
+
   @Override
   CommandOutputProcessingMode onTextAvailable(@NonNls final String text) {
     if (!myFlexDebugProcess.getSession().isPaused()) {
@@ -83,6 +83,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.intellij.lang.javascript.flex.run.FlashRunnerParameters.AirMobileDebugTransport;
 import static com.intellij.lang.javascript.flex.run.FlashRunnerParameters.AirMobileRunTarget;
@@ -170,6 +171,11 @@ public class FlexDebugProcess extends XDebugProcess {
     }
   };
 
+  // responses to the read-only evaluations keyed by command text, cleared when any other command is sent
+  private final Map<String, String> myEvaluationResponses = new ConcurrentHashMap<>();
+  // evaluations to be sent to fdb together, see addPendingEvaluation()
+  private final List<Pair<Obsolescent, FlexStackFrame.EvaluateCommand>> myPendingEvaluations = new ArrayList<>();
+
   private boolean suspended;
   private boolean fdbWaitingForPlayerStateReached;
   private boolean startupDone;
@@ -995,6 +1001,9 @@ public class FlexDebugProcess extends XDebugProcess {
 
   void doSendCommandText(final DebuggerCommand command) throws IOException {
     final String text = command.getText();
+    if (!command.isReadOnly()) {
+      myEvaluationResponses.clear();
+    }
 
     setSuspended(
       command.getOutputProcessingMode() == CommandOutputProcessingType.NO_PROCESSING && command.getEndVMState() == VMState.SUSPENDED);
@@ -1089,6 +1098,40 @@ public class FlexDebugProcess extends XDebugProcess {
     myOutputAlarm.addRequest(() -> sendCommand(command), delay);
   }
 
+  /**
+   * Same as {@code addPendingCommand(new CompositeDebuggerCommand(obsolescent, command), delay)}, but the evaluations added
+   * before the delay of the first one expires are sent to fdb together and their responses are read in one go.
+   */
+  void addPendingEvaluation(final Obsolescent obsolescent, final FlexStackFrame.EvaluateCommand command, int delay) {
+    if (!command.isReadOnly()) {
+      addPendingCommand(new CompositeDebuggerCommand(obsolescent, command), delay);
+      return;
+    }
+
+    synchronized (myPendingEvaluations) {
+      myPendingEvaluations.add(Pair.create(obsolescent, command));
+      if (myPendingEvaluations.size() > 1) return;
+    }
+
+    myOutputAlarm.addRequest(() -> {
+      final List<Pair<Obsolescent, FlexStackFrame.EvaluateCommand>> evaluations;
+      synchronized (myPendingEvaluations) {
+        evaluations = new ArrayList<>(myPendingEvaluations);
+        myPendingEvaluations.clear();
+      }
+      sendCommand(new PipelinedEvaluateCommand(evaluations));
+    }, delay);
+  }
+
+  @Nullable
+  String getCachedEvaluationResponse(final String commandText) {
+    return myEvaluationResponses.get(commandText);
+  }
+
+  void cacheEvaluationResponse(final String commandText, final String response) {
+    myEvaluationResponses.put(commandText, response);
+  }
+
   private void scheduleFdbErrorStreamReading() {
     ApplicationManager.getApplication().executeOnPooledThread(() -> {
       InputStreamReader myErrorStreamReader = new InputStreamReader(fdbProcess.getErrorStream(), StandardCharsets.UTF_8);
@@ -1224,6 +1267,8 @@ public class FlexDebugProcess extends XDebugProcess {
     private final InputStreamReader myReader;
     private final char[] buf = new char[8192];
     private final StringBuilder lastText = new StringBuilder();
+    // start of the unread text; the responses to pipelined commands are returned one by one without shifting the rest of the text
+    private int lastTextStart;
     private int lastTextMarkerScanningStart;
     private final InputStream myInputStream;
 
@@ -1257,27 +1302,35 @@ public class FlexDebugProcess extends XDebugProcess {
     private String getNextLine(boolean allowEmptyMarker) {
       String result;
       String marker = FDB_MARKER;
-      int i = lastText.indexOf(marker, lastTextMarkerScanningStart);
+      final int scanningStart = Math.max(lastTextStart, lastTextMarkerScanningStart);
+      int i = lastText.indexOf(marker, scanningStart);
 
       if (i == -1) {
         marker = "(y or n)";
-        i = lastText.indexOf(marker, lastTextMarkerScanningStart);
+        i = lastText.indexOf(marker, scanningStart);
       }
 
       if (i == -1 &&
           (allowEmptyMarker ||
-           lastText.indexOf(WAITING_PLAYER_MARKER_1, lastTextMarkerScanningStart) >= 0 ||
-           lastText.indexOf(WAITING_PLAYER_MARKER_2, lastTextMarkerScanningStart) >= 0) &&
-          lastText.length() > 0) {
+           lastText.indexOf(WAITING_PLAYER_MARKER_1, scanningStart) >= 0 ||
+           lastText.indexOf(WAITING_PLAYER_MARKER_2, scanningStart) >= 0) &&
+          lastText.length() > lastTextStart) {
         i = lastText.length();
         marker = "";
       }
 
       if (i != -1) {
-        result = lastText.substring(0, i);
-        lastText.delete(0, i + marker.length());
+        result = lastText.substring(lastTextStart, i);
+        lastTextStart = i + marker.length();
         lastTextMarkerScanningStart = 0;
-        if (isBlank(lastText)) lastText.setLength(0);
+        if (isBlank(lastText, lastTextStart)) {
+          lastText.setLength(0);
+          lastTextStart = 0;
+        }
+        else if (lastTextStart > buf.length && lastTextStart > lastText.length() / 2) {
+          lastText.delete(0, lastTextStart);
+          lastTextStart = 0;
+        }
         setSuspended(marker.length() != 0);
         return result;
       }
@@ -1288,8 +1341,8 @@ public class FlexDebugProcess extends XDebugProcess {
       return result;
     }
 
-    private boolean isBlank(StringBuilder lastText) {
-      for (int i = 0; i < lastText.length(); ++i) {
+    private boolean isBlank(StringBuilder lastText, int start) {
+      for (int i = start; i < lastText.length(); ++i) {
         if (lastText.charAt(i) != ' ') return false;
       }
       return true;
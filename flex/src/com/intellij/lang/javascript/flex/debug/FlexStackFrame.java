@@ -230,6 +230,11 @@ public class FlexStackFrame extends XStackFrame {
     if (qName2IdMap != null) return;
     qName2IdMap = new LinkedHashMap<>();
     final DebuggerCommand command = new DebuggerCommand("info scopechain", CommandOutputProcessingType.SPECIAL_PROCESSING) {
+      @Override
+      boolean isReadOnly() {
+        return true;
+      }
+
       @Override
       CommandOutputProcessingMode onTextAvailable(@NonNls final String s) {
         final StringTokenizer tokenizer = new StringTokenizer(s, "\r\n");
@@ -264,6 +269,9 @@ public class FlexStackFrame extends XStackFrame {
     private final String expression;
     private int responseCount;
     private boolean myFinished;
+    private String myCachedResponse;
+    private boolean myPipelined;
+    private boolean myCacheable;
 
     EvaluateCommand(String _expression, final XDebuggerEvaluator.XEvaluationCallback _callback) {
       super(buildCommandForExpression(_expression), CommandOutputProcessingType.SPECIAL_PROCESSING);
@@ -271,6 +279,58 @@ public class FlexStackFrame extends XStackFrame {
       callback = _callback;
     }
 
+    /**
+     * Marks the expression as known not to change the program state, e.g. the internal probes used to present the values,
+     * so that its response may be cached until the player resumes.
+     */
+    EvaluateCommand setCacheable() {
+      myCacheable = true;
+      return this;
+    }
+
+    /**
+     * Only the expressions marked with {@link #setCacheable()} are read-only, any other expression may change the program state,
+     * so it is neither cached nor pipelined and it drops the cached responses.
+     */
+    @Override
+    boolean isReadOnly() {
+      return myCacheable;
+    }
+
+    @Override
+    public void post(FlexDebugProcess flexDebugProcess) throws IOException {
+      myCachedResponse = isReadOnly() ? flexDebugProcess.getCachedEvaluationResponse(getText()) : null;
+      if (myCachedResponse == null) {
+        super.post(flexDebugProcess);
+      }
+    }
+
+    @Override
+    public String read(FlexDebugProcess flexDebugProcess) throws IOException {
+      if (myCachedResponse != null) {
+        responseCount = 1; // frame response
+        return myCachedResponse;
+      }
+      return super.read(flexDebugProcess);
+    }
+
+    /**
+     * Called instead of {@link #post} when the command is sent by {@link PipelinedEvaluateCommand}.
+     *
+     * @return false if the response is cached and has been processed already
+     */
+    boolean preparePipelined(FlexDebugProcess flexDebugProcess) {
+      final String cachedResponse = flexDebugProcess.getCachedEvaluationResponse(getText());
+      if (cachedResponse != null) {
+        myCachedResponse = cachedResponse;
+        responseCount = 1; // frame response
+        proceedWithEvaluationResponse(cachedResponse);
+        return false;
+      }
+      myPipelined = true;
+      return true;
+    }
+
     @Override
     CommandOutputProcessingMode onTextAvailable(@NonNls String line) {
       if (myDebugProcess.filterStdResponse(line)) return CommandOutputProcessingMode.PROCEEDING;
@@ -282,11 +342,21 @@ public class FlexStackFrame extends XStackFrame {
       if (responseCount == 1) { // skip frame
         return CommandOutputProcessingMode.PROCEEDING;
       }
+      if (responseCount == 2 && myCachedResponse == null && isReadOnly() && !cannotEvaluateResponse(line)) {
+        myDebugProcess.cacheEvaluationResponse(getText(), line);
+      }
       return doOnTextAvailable(line);
     }
 
     CommandOutputProcessingMode doOnTextAvailable(@NonNls String s) {
       if (cannotEvaluateResponse(s) && mySourcePosition != null) {
+        if (myPipelined) {
+          // the responses to the other pipelined commands are not read yet, evaluate the usual way after them
+          myPipelined = false;
+          responseCount = 0;
+          myDebugProcess.sendCommand(this);
+          return CommandOutputProcessingMode.DONE;
+        }
         ensureQName2IdMapLoaded();
         evaluateFromTypeMap();
         return CommandOutputProcessingMode.DONE;
@@ -510,6 +580,11 @@ public class FlexStackFrame extends XStackFrame {
       myValueType = valueType;
     }
 
+    @Override
+    boolean isReadOnly() {
+      return true;
+    }
+
     @Override
     CommandOutputProcessingMode onTextAvailable(@NonNls final String s) {
       final int offsetIndex = hasFrame ? 1:0; // frame command
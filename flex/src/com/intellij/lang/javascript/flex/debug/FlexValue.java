@@ -231,7 +231,7 @@ class FlexValue extends XValue {
         }
       });
 
-    myDebugProcess.addPendingCommand(new CompositeDebuggerCommand(node, command), 100);
+    myDebugProcess.addPendingEvaluation(node, command.setCacheable(), 100);
   }
 
   private void scheduleCollectionSizePresentation(final XValueNode node, final String type, final String prefix) {
@@ -255,7 +255,7 @@ class FlexValue extends XValue {
         }
       });
 
-    myDebugProcess.addPendingCommand(new CompositeDebuggerCommand(node, command), 100);
+    myDebugProcess.addPendingEvaluation(node, command.setCacheable(), 100);
   }
 
   private static void setXmlListPresentation(final XValueNode node, final String value, final FlexValue flexValue) {
@@ -340,7 +340,7 @@ class FlexValue extends XValue {
       }
     });
 
-    myDebugProcess.addPendingCommand(new CompositeDebuggerCommand(node, command), 700);
+    myDebugProcess.addPendingEvaluation(node, command.setCacheable(), 700);
   }
 
   private static String setFullValueEvaluatorIfNeeded(final XValueNode node, String value, final boolean isXml) {
@@ -475,7 +475,7 @@ class FlexValue extends XValue {
       }
     };
 
-    myDebugProcess.sendCommand(command);
+    myDebugProcess.sendCommand(command.setCacheable());
   }
 
   @Override
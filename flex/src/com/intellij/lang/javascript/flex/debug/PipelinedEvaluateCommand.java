@@ -0,0 +1,78 @@
+package com.intellij.lang.javascript.flex.debug;
+
+import com.intellij.openapi.util.Pair;
+import com.intellij.xdebugger.Obsolescent;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends several evaluations to fdb at once and reads their responses in the order of sending, so evaluations needed
+ * to present the children of a node take a single round-trip instead of one per child.
+ * <p>
+ * The evaluations whose nodes became obsolete are skipped, the cached responses are processed without sending anything.
+ */
+class PipelinedEvaluateCommand extends DebuggerCommand {
+  private final List<Pair<Obsolescent, FlexStackFrame.EvaluateCommand>> myEvaluations;
+  private final List<FlexStackFrame.EvaluateCommand> mySentCommands = new ArrayList<>();
+  private int myCurrentIndex;
+  private String myText = "";
+
+  PipelinedEvaluateCommand(@NotNull List<Pair<Obsolescent, FlexStackFrame.EvaluateCommand>> evaluations) {
+    super("does not matter because getText() is overridden", CommandOutputProcessingType.SPECIAL_PROCESSING);
+    myEvaluations = evaluations;
+  }
+
+  @NotNull
+  @Override
+  String getText() {
+    return myText;
+  }
+
+  @Override
+  boolean isReadOnly() {
+    return true;
+  }
+
+  @Override
+  public void post(final FlexDebugProcess flexDebugProcess) throws IOException {
+    final StringBuilder text = new StringBuilder();
+    for (Pair<Obsolescent, FlexStackFrame.EvaluateCommand> evaluation : myEvaluations) {
+      if (evaluation.first != null && evaluation.first.isObsolete()) continue;
+
+      final FlexStackFrame.EvaluateCommand command = evaluation.second;
+      if (command.preparePipelined(flexDebugProcess)) {
+        if (text.length() > 0) text.append('\n');
+        text.append(command.getText());
+        mySentCommands.add(command);
+      }
+    }
+
+    if (!mySentCommands.isEmpty()) {
+      myText = text.toString();
+      flexDebugProcess.doSendCommandText(this);
+    }
+  }
+
+  @Override
+  public String read(final FlexDebugProcess flexDebugProcess) throws IOException {
+    return mySentCommands.isEmpty() ? "" : super.read(flexDebugProcess);
+  }
+
+  @Override
+  CommandOutputProcessingMode onTextAvailable(@NonNls final String s) {
+    if (myCurrentIndex < mySentCommands.size() &&
+        mySentCommands.get(myCurrentIndex).onTextAvailable(s) == CommandOutputProcessingMode.DONE) {
+      ++myCurrentIndex;
+    }
+    return myCurrentIndex < mySentCommands.size() ? CommandOutputProcessingMode.PROCEEDING : CommandOutputProcessingMode.DONE;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getName() + "[" + mySentCommands.size() + "]";
+  }
+}
@@ -2,41 +2,57 @@ package com.intellij.lang.javascript.flex.importer;
 
 import org.jetbrains.annotations.NotNull;
 
-import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
-import java.util.zip.InflaterInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
 
 /**
+ * Reader over a {@link java.nio.ByteBuffer}. {@link #readBytes} creates a view over the same bytes instead of copying
+ * them, so the method bodies and the embedded abc blocks of a SWF share the memory of the whole file.
+ *
  * @author Maxim.Mossienko
 */
 class ByteBuffer {
-  private byte[] bytes;
+  // uncompressed SWFs of the largest framework libraries are about 10 MB
+  private static final int MAX_EXPECTED_UNCOMPRESSED_SIZE = 256 * 1024 * 1024;
+
+  private java.nio.ByteBuffer bytes;
   private int position;
   private boolean littleEndian;
 
   void read(@NotNull InputStream inputStream) throws IOException {
     try {
-      bytes = readStream(inputStream);
+      setBytes(java.nio.ByteBuffer.wrap(readStream(inputStream, 8192)));
     }
     finally {
       inputStream.close();
     }
   }
 
+  void wrap(byte @NotNull [] content) {
+    setBytes(java.nio.ByteBuffer.wrap(content));
+  }
+
+  private void setBytes(@NotNull java.nio.ByteBuffer buffer) {
+    bytes = buffer;
+    bytes.order(littleEndian ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    position = 0;
+  }
+
   void setLittleEndian() {
     littleEndian = true;
+    if (bytes != null) {
+      bytes.order(ByteOrder.LITTLE_ENDIAN);
+    }
   }
 
   int readInt() {
-    int result;
-    if (littleEndian) {
-      result = (((bytes[position + 3] & 0xFF) << 8 | (bytes[position + 2] & 0xFF)) << 16) + ((bytes[position + 1] & 0xFF) << 8) | (bytes[position] & 0xFF);
-    }
-    else {
-      result = (((bytes[position] & 0xFF) << 8 | (bytes[position + 1] & 0xFF)) << 16) + ((bytes[position + 2] & 0xFF) << 8) | (bytes[position + 3] & 0xFF);
-    }
+    int result = bytes.getInt(position);
     position += 4;
     return result;
   }
@@ -50,77 +66,120 @@ class ByteBuffer {
   }
 
   public int bytesSize() {
-    return bytes.length;
+    return bytes.limit();
   }
 
-  public void uncompress() throws IOException {
-    final InflaterInputStream zipInputStream = new InflaterInputStream(new ByteArrayInputStream(bytes));
-
-    bytes = readStream(zipInputStream);
+  /**
+   * Inflates the content, the buffer for the result is allocated once if the size of the uncompressed content is known.
+   *
+   * @param expectedSize the uncompressed size declared in the SWF header or {@code -1}
+   */
+  public void uncompress(int expectedSize) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      if (bytes.hasArray()) {
+        inflater.setInput(bytes.array(), bytes.arrayOffset(), bytes.limit());
+      }
+      else {
+        byte[] input = new byte[bytes.limit()];
+        bytes.duplicate().get(input);
+        inflater.setInput(input);
+      }
 
-    zipInputStream.close();
+      byte[] result = new byte[expectedSize >= 0 && expectedSize <= MAX_EXPECTED_UNCOMPRESSED_SIZE ? expectedSize : 8192];
+      int total = 0;
+      while (!inflater.finished()) {
+        if (total == result.length) {
+          byte[] newResult = new byte[Math.max(result.length * 2, 8192)];
+          System.arraycopy(result, 0, newResult, 0, total);
+          result = newResult;
+        }
+        int inflated = inflater.inflate(result, total, result.length - total);
+        if (inflated == 0 && inflater.needsInput()) {
+          throw new EOFException("Unexpected end of ZLIB input stream");
+        }
+        if (inflated == 0 && inflater.needsDictionary()) {
+          throw new ZipException("ZLIB dictionary is not supported");
+        }
+        total += inflated;
+      }
+      setBytes(java.nio.ByteBuffer.wrap(result, 0, total).slice());
+    }
+    catch (DataFormatException e) {
+      throw new IOException(e);
+    }
+    finally {
+      inflater.end();
+    }
   }
 
-  private static byte[] readStream(final InputStream zipInputStream) throws IOException {
-    final byte[] buf = new byte[8192];
-    byte[] result = new byte[8192];
+  private static byte[] readStream(final InputStream inputStream, int initialSize) throws IOException {
+    byte[] result = new byte[initialSize];
     int total = 0;
 
     while (true) {
-      int read = zipInputStream.read(buf);
-      if (read == -1) break;
-      if (total + read >= result.length) {
+      if (total == result.length) {
         byte[] newresult = new byte[result.length * 2];
         System.arraycopy(result, 0, newresult, 0, total);
         result = newresult;
       }
-
-      System.arraycopy(buf, 0, result, total, read);
+      int read = inputStream.read(result, total, result.length - total);
+      if (read == -1) break;
       total += read;
     }
 
+    if (total == result.length) return result;
     final byte[] realResult = new byte[total];
     System.arraycopy(result, 0, realResult, 0, total);
     return realResult;
   }
 
   public int readUnsignedByte() {
-    return bytes[position++] & 0xFF;
+    return bytes.get(position++) & 0xFF;
   }
 
   public int readByte() {
-    return bytes[position++];
+    return bytes.get(position++);
   }
 
   public int readUnsignedShort() {
-    int result;
-    if (littleEndian) {
-      result = (bytes[position + 1] & 0xFF) << 8 | (bytes[position] & 0xFF);
-    }
-    else {
-      result = (bytes[position] & 0xFF) << 8 | (bytes[position + 1] & 0xFF);
-    }
+    int result = bytes.getShort(position) & 0xFFFF;
     position += 2;
     return result;
   }
 
   public void readBytes(ByteBuffer data2, int length) {
-    data2.bytes = new byte[length];
-    System.arraycopy(bytes, position, data2.bytes, 0, length);
+    if (position + length > bytes.limit()) {
+      throw new IndexOutOfBoundsException("position " + position + ", length " + length + ", size " + bytes.limit());
+    }
+    java.nio.ByteBuffer view = bytes.duplicate();
+    view.position(position);
+    view.limit(position + length);
+    data2.setBytes(view.slice());
     position += length;
   }
 
   public boolean eof() {
-    return position >= bytes.length;
+    return position >= bytes.limit();
   }
 
   public String readUTFBytes(int i) {
-    final byte[] buf = new byte[i];
-    while (i > 0) {
-      buf[buf.length - i] = (byte)readByte();
-      --i;
+    final String result;
+    if (bytes.hasArray()) {
+      if (position + i > bytes.limit()) {
+        throw new IndexOutOfBoundsException("position " + position + ", length " + i + ", size " + bytes.limit());
+      }
+      result = new String(bytes.array(), bytes.arrayOffset() + position, i, StandardCharsets.UTF_8);
     }
-    return new String(buf, StandardCharsets.UTF_8);
+    else {
+      final byte[] buf = new byte[i];
+      java.nio.ByteBuffer view = bytes.duplicate();
+      view.position(position);
+      view.get(buf);
+      result = new String(buf, StandardCharsets.UTF_8);
+    }
+    position += i;
+    return result;
   }
 
   public double readDouble() {
@@ -142,7 +201,7 @@ class ByteBuffer {
   }
 
   public byte getByte(int i) {
-    return bytes[i];
+    return bytes.get(i);
   }
 
   public int getPosition() {
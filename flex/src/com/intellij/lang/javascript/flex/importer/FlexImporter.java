@@ -60,7 +60,7 @@ public class FlexImporter {
     catch (IOException ex) {
       return "/* " + ex.getLocalizedMessage() + " */";
     }
-    catch (ArrayIndexOutOfBoundsException ex) {
+    catch (IndexOutOfBoundsException ex) {
       return "/* Invalid format */";
     }
   }
@@ -70,9 +70,22 @@ public class FlexImporter {
     processFlexByteCode(in, new AS3InterfaceStubDumper(parent));
   }
 
+  /**
+   * Same as {@link #buildStubsInterfaceFromStream} but reads the content in place, without copying it.
+   */
+  public static void buildStubsInterfaceFromBytes(final byte @NotNull [] content, final StubElement parent) throws Exception {
+    ByteBuffer data = new ByteBuffer();
+    data.wrap(content);
+    processFlexByteCode(data, new AS3InterfaceStubDumper(parent));
+  }
+
   private static void processFlexByteCode(@NotNull final InputStream in, @NotNull FlexByteCodeInformationProcessor processor) throws IOException {
     ByteBuffer data = new ByteBuffer();
     data.read(in);
+    processFlexByteCode(data, processor);
+  }
+
+  private static void processFlexByteCode(@NotNull ByteBuffer data, @NotNull FlexByteCodeInformationProcessor processor) throws IOException {
     data.setLittleEndian();
     if (data.bytesSize() == 0) return;
     int version = data.readUnsignedInt();
@@ -83,12 +96,14 @@ public class FlexImporter {
     }
     else if ((version & SWF_MAGIC) == SWF_MAGIC) {
       final int delta = 8;
+      // the header is followed by the length of the whole uncompressed file
+      final int uncompressedSize = data.readInt() - delta;
       data.setPosition(delta);
       ByteBuffer udata = new ByteBuffer();
       udata.setLittleEndian();
       data.readBytes(udata, data.bytesSize() - delta);
       int csize = udata.bytesSize();
-      udata.uncompress();
+      udata.uncompress(uncompressedSize);
       processor.dumpStat("decompressed swf " + csize + " -> " + udata.bytesSize() + "\n");
       udata.setPosition(0);
       new Swf(udata, processor);
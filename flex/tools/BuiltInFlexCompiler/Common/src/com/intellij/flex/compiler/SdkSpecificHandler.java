@@ -31,6 +31,13 @@ public abstract class SdkSpecificHandler {
   public void setupOmitTraceOption(final boolean omitTrace) {
   }
 
+  /**
+   * @return total size in bytes of the libraries the compilation reads, or -1 if unknown; used to estimate the heap the compilation needs
+   */
+  public long getLibrariesSize(final boolean isSwf, final String[] params) {
+    return -1;
+  }
+
   public abstract void compileSwf(String[] args);
 
   public abstract void compileSwc(String[] args);
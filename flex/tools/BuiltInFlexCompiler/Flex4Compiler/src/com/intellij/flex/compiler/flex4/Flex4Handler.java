@@ -10,6 +10,7 @@ import flex2.compiler.common.Configuration;
 import flex2.compiler.common.DefaultsConfigurator;
 import flex2.compiler.config.ConfigurationBuffer;
 import flex2.compiler.config.ConfigurationException;
+import flex2.compiler.io.VirtualFile;
 import flex2.compiler.util.ThreadLocalToolkit;
 import flex2.tools.CommandLineConfiguration;
 import flex2.tools.Compc;
@@ -17,10 +18,14 @@ import flex2.tools.CompcConfiguration;
 import flex2.tools.Mxmlc;
 import macromedia.asc.util.ContextStatics;
 
+import java.io.File;
+import java.io.FileFilter;
 import java.io.IOException;
 
 public class Flex4Handler extends SdkSpecificHandler {
 
+  private Configuration myConfiguration;
+
   public void initThreadLocals(final Logger logger) {
     super.initThreadLocals(logger);
 
@@ -42,7 +47,7 @@ public class Flex4Handler extends SdkSpecificHandler {
 
   public boolean isOmitTrace(final boolean isSwf, final String[] params) {
     try {
-      final Configuration configuration = processConfiguration(isSwf, params);
+      final Configuration configuration = getConfiguration(isSwf, params);
       final CompilerConfiguration cc = configuration.getCompilerConfiguration();
       return !cc.debug() && cc.omitTraceStatements();
     } catch (Throwable t) {
@@ -51,6 +56,50 @@ public class Flex4Handler extends SdkSpecificHandler {
     }
   }
 
+  public long getLibrariesSize(final boolean isSwf, final String[] params) {
+    try {
+      final CompilerConfiguration cc = getConfiguration(isSwf, params).getCompilerConfiguration();
+      return getSize(cc.getLibraryPath()) + getSize(cc.getExternalLibraryPath()) + getSize(cc.getIncludeLibraries());
+    } catch (Throwable t) {
+      // if API changed
+      return -1;
+    }
+  }
+
+  private static long getSize(final VirtualFile[] libraries) {
+    long size = 0;
+    if (libraries != null) {
+      for (VirtualFile library : libraries) {
+        if (library.isDirectory()) {
+          final File[] swcFiles = new File(library.getName()).listFiles(new FileFilter() {
+            public boolean accept(final File file) {
+              return file.getName().endsWith(".swc");
+            }
+          });
+          if (swcFiles != null) {
+            for (File swcFile : swcFiles) {
+              size += swcFile.length();
+            }
+          }
+        }
+        else {
+          size += library.size();
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * The handler is created for a single compilation, so the configuration is processed once for all the questions about it.
+   */
+  private Configuration getConfiguration(final boolean isSwf, final String[] params) throws ConfigurationException, IOException {
+    if (myConfiguration == null) {
+      myConfiguration = processConfiguration(isSwf, params);
+    }
+    return myConfiguration;
+  }
+
   /**
    * similar to flex2.tools.oem.internal.LibraryCompiler.getCompcConfiguration(String[] args)
    * or flex2.tools.oem.internal.ApplicationCompiler.getCommandLineConfiguration(String[] args)
@@ -0,0 +1,50 @@
+package com.intellij.flex.compiler;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Heap reserved by the running compilations. Each compilation reserves the heap estimated from the size of the libraries it reads
+ * and waits until its reservation fits next to the reservations of the running compilations. A single compilation always fits.
+ */
+class CompilationMemoryBudget {
+
+  private static final int MB = 1024 * 1024;
+  // heap used by a compilation besides the resolved libraries: compiler configuration, sources, type tables of the sources
+  private static final int BASE_JOB_MEMORY_MB = 64;
+  // resolved SWC libraries take several times more heap than their compressed size on disk
+  private static final int LIBRARIES_MEMORY_FACTOR = 6;
+
+  private final int myBudgetMb;
+  private final int myDefaultJobMemoryMb;
+  private final Semaphore myFreeMb;
+
+  /**
+   * @param defaultJobMemoryMb heap reserved by a compilation if the size of its libraries is unknown
+   */
+  CompilationMemoryBudget(final int budgetMb, final int defaultJobMemoryMb) {
+    myBudgetMb = Math.max(1, budgetMb);
+    myDefaultJobMemoryMb = defaultJobMemoryMb;
+    myFreeMb = new Semaphore(myBudgetMb, true);
+  }
+
+  /**
+   * @param librariesSize total size in bytes of the libraries the compilation reads, or -1 if unknown
+   * @return heap in megabytes to reserve for the compilation, never more than the whole budget
+   */
+  int estimateJobMemoryMb(final long librariesSize) {
+    final long jobMemoryMb = librariesSize < 0 ? myDefaultJobMemoryMb : BASE_JOB_MEMORY_MB + librariesSize * LIBRARIES_MEMORY_FACTOR / MB;
+    return (int)Math.max(1, Math.min(jobMemoryMb, myBudgetMb));
+  }
+
+  /**
+   * Waits until the heap is not reserved by other compilations. Compilations get their reservations in the order they ask for them,
+   * so a large compilation is not delayed forever by smaller ones.
+   */
+  void reserve(final int jobMemoryMb) throws InterruptedException {
+    myFreeMb.acquire(jobMemoryMb);
+  }
+
+  void release(final int jobMemoryMb) {
+    myFreeMb.release(jobMemoryMb);
+  }
+}
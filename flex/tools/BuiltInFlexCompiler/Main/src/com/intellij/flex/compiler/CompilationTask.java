@@ -3,7 +3,7 @@ package com.intellij.flex.compiler;
 import flex2.compiler.ILocalizableMessage;
 import flex2.compiler.common.Configuration;
 
-public class CompilationThread extends Thread {
+public class CompilationTask implements Runnable {
 
   private static int omitTraceCompilationsCount = 0;
   private static int traceCompilationsCount = 0;
@@ -13,15 +13,18 @@ public class CompilationThread extends Thread {
   private final SdkSpecificHandler mySdkSpecificHandler;
   private final String[] myParams;
   private final OutputLogger myLogger;
+  private final CompilationMemoryBudget myMemoryBudget;
 
-  public CompilationThread(final boolean isSwf,
-                           final SdkSpecificHandler sdkSpecificHandler,
-                           final String[] params,
-                           final OutputLogger logger) {
+  public CompilationTask(final boolean isSwf,
+                         final SdkSpecificHandler sdkSpecificHandler,
+                         final String[] params,
+                         final OutputLogger logger,
+                         final CompilationMemoryBudget memoryBudget) {
     mySwf = isSwf;
     mySdkSpecificHandler = sdkSpecificHandler;
     myParams = params;
     myLogger = logger;
+    myMemoryBudget = memoryBudget;
   }
 
   static {
@@ -38,7 +41,9 @@ public class CompilationThread extends Thread {
       mySdkSpecificHandler.initThreadLocals(myLogger);
 
       final boolean omitTrace = mySdkSpecificHandler.isOmitTrace(mySwf, myParams);
+      final int jobMemoryMb = myMemoryBudget.estimateJobMemoryMb(mySdkSpecificHandler.getLibrariesSize(mySwf, myParams));
 
+      myMemoryBudget.reserve(jobMemoryMb);
       try {
         acquire(omitTrace);
 
@@ -53,6 +58,7 @@ public class CompilationThread extends Thread {
       }
       finally {
         release(omitTrace);
+        myMemoryBudget.release(jobMemoryMb);
       }
 
       /*if (outputFileSize > 0) {
@@ -8,6 +8,7 @@ import flex2.tools.VersionInfo;
 import java.io.*;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.concurrent.*;
 
 public class FlexCompiler implements MessageSender {
 
@@ -21,9 +22,53 @@ public class FlexCompiler implements MessageSender {
   public static String SDK_MINOR_VERSION = VersionInfo.FLEX_MINOR_VERSION;
   public static String SDK_REVISION_VERSION = VersionInfo.FLEX_NANO_VERSION;
 
+  /**
+   * Maximum number of compilations running at the same time, other compilations wait in a queue. By default it is the number
+   * of processors. Besides, the compilations run at the same time share 3/4 of the max heap size, see {@link CompilationMemoryBudget}.
+   */
+  private static final String MAX_THREADS_PROPERTY = "flex.compiler.max.threads";
+  /**
+   * Heap in megabytes reserved by a compilation if the size of its libraries is unknown, e.g. for Flex SDK 3.
+   */
+  private static final String JOB_MEMORY_PROPERTY = "flex.compiler.job.memory.mb";
+  private static final int DEFAULT_JOB_MEMORY_MB = 256;
+
   private DataInputStream myDataInputStream;
   private DataOutputStream myDataOutputStream;
 
+  private final ExecutorService myCompilationExecutor;
+  private final CompilationMemoryBudget myMemoryBudget;
+
+  public FlexCompiler() {
+    final int memoryBudgetMb = (int)(Runtime.getRuntime().maxMemory() / (1024 * 1024) * 3 / 4);
+    myMemoryBudget = new CompilationMemoryBudget(memoryBudgetMb, Math.max(1, getIntProperty(JOB_MEMORY_PROPERTY, DEFAULT_JOB_MEMORY_MB)));
+
+    final int maxThreads = Math.max(1, getIntProperty(MAX_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    myCompilationExecutor = new ThreadPoolExecutor(maxThreads, maxThreads, 0, TimeUnit.MILLISECONDS,
+                                                   new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+      private int myCount = 0;
+
+      public synchronized Thread newThread(final Runnable runnable) {
+        final Thread thread = new Thread(runnable, "Flex compilation queue " + (++myCount));
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  private static int getIntProperty(final String name, final int defaultValue) {
+    final String value = System.getProperty(name);
+    if (value != null) {
+      try {
+        return Integer.parseInt(value.trim());
+      }
+      catch (NumberFormatException e) {
+        System.out.println("Incorrect " + name + " value: " + value);
+      }
+    }
+    return defaultValue;
+  }
+
   private void openSocket(int port) throws IOException {
     final int maxAttempts = 10;
     Socket socket;
@@ -104,14 +149,14 @@ public class FlexCompiler implements MessageSender {
         exit();
         return true;
       } else {
-        startCompilationThread(command);
+        submitCompilation(command);
       }
     }
 
     return false;
   }
 
-  private void startCompilationThread(final String command) {
+  private void submitCompilation(final String command) {
     final int colonPos = command.indexOf(":");
     if (colonPos <= 0) {
       sendMessage("Error: Incorrect command: [" + command + "]");
@@ -149,11 +194,30 @@ public class FlexCompiler implements MessageSender {
       return;
     }
 
-    final CompilationThread compilationThread =
-      new CompilationThread(isSwf, sdkSpecificHandler, getParams(compilationCommand), logger);
-    compilationThread.setPriority(Thread.MAX_PRIORITY);
-    compilationThread.setDaemon(true);
-    compilationThread.start();
+    final CompilationTask compilationTask =
+      new CompilationTask(isSwf, sdkSpecificHandler, getParams(compilationCommand), logger, myMemoryBudget);
+    myCompilationExecutor.execute(new Runnable() {
+      public void run() {
+        runInNewThread(compilationTask, "Flex compilation " + commandNumberStr);
+      }
+    });
+  }
+
+  /**
+   * The flex2 compiler keeps its logger, path resolver and other state in thread locals, and not all of them are cleaned after
+   * a compilation. So the pool threads only limit the number of compilations, each compilation runs in a thread of its own.
+   */
+  private static void runInNewThread(final Runnable runnable, final String name) {
+    final Thread thread = new Thread(runnable, name);
+    thread.setPriority(Thread.MAX_PRIORITY);
+    thread.setDaemon(true);
+    thread.start();
+    try {
+      thread.join();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
   }
 
   private SdkSpecificHandler getSdkSpecificHandler() {
@@ -182,6 +246,7 @@ public class FlexCompiler implements MessageSender {
 
   private void exit() {
     cancelAllCompilations();
+    myCompilationExecutor.shutdown();
     try {
       myDataInputStream.close();
     } catch (IOException ignored) {
@@ -22,11 +22,13 @@ public final class GaugeCli {
   private final Process gaugeProcess;
   private final Thread gaugeExceptionWatcher;
   private final GaugeConnection gaugeConnection;
+  private final StepValueCache stepValueCache;
 
   public GaugeCli(Process gaugeProcess, Thread watcher, GaugeConnection gaugeConnection) {
     this.gaugeProcess = gaugeProcess;
     gaugeExceptionWatcher = watcher;
     this.gaugeConnection = gaugeConnection;
+    stepValueCache = gaugeConnection == null ? null : new StepValueCache(gaugeConnection);
   }
 
   public Thread getExceptionWatcher() {
@@ -37,6 +39,13 @@ public final class GaugeCli {
     return gaugeConnection;
   }
 
+  /**
+   * @return step values computed by the daemon of this cli, {@code null} if there is no connection to the daemon
+   */
+  public StepValueCache getStepValueCache() {
+    return stepValueCache;
+  }
+
   public Process getGaugeProcess() {
     return gaugeProcess;
   }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 ThoughtWorks, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.thoughtworks.gauge.core;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.thoughtworks.gauge.StepValue;
+import com.thoughtworks.gauge.connection.GaugeConnection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Step values of a gauge daemon. The values are computed by the daemon, except for the steps without parameters
+ * which are their own values. Concurrent requests for the same step share a single call to the daemon,
+ * the least recently used values are evicted when the cache is full.
+ */
+public final class StepValueCache {
+  private static final Logger LOG = Logger.getInstance(StepValueCache.class);
+
+  private static final int MAX_SIZE = 10_000;
+  private static final String TABLE_SUFFIX = " <table>";
+
+  private final GaugeConnection connection;
+  private final Map<String, StepValue> values = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, StepValue> eldest) {
+      return size() > MAX_SIZE;
+    }
+  };
+  private final Map<String, FutureTask<StepValue>> pendingRequests = new ConcurrentHashMap<>();
+
+  public StepValueCache(@NotNull GaugeConnection connection) {
+    this.connection = connection;
+  }
+
+  @Nullable
+  public StepValue getStepValue(@NotNull String text, boolean hasInlineTable) {
+    String key = hasInlineTable ? text + TABLE_SUFFIX : text;
+    StepValue value;
+    synchronized (values) {
+      value = values.get(key);
+    }
+    if (value != null) return value;
+
+    if (!hasInlineTable && isPlainStep(text)) {
+      value = new StepValue(text, text, new ArrayList<>());
+    }
+    else {
+      value = requestStepValue(key, text, hasInlineTable);
+      if (value == null || value.getStepText().isEmpty()) return value;
+    }
+
+    synchronized (values) {
+      values.put(key, value);
+    }
+    return value;
+  }
+
+  @Nullable
+  private StepValue requestStepValue(@NotNull String key, @NotNull String text, boolean hasInlineTable) {
+    FutureTask<StepValue> request = new FutureTask<>(() -> connection.getStepValue(text, hasInlineTable));
+    FutureTask<StepValue> pending = pendingRequests.putIfAbsent(key, request);
+    if (pending == null) {
+      try {
+        request.run();
+      }
+      finally {
+        pendingRequests.remove(key, request);
+      }
+      pending = request;
+    }
+
+    try {
+      return pending.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+      LOG.debug(e);
+      return null;
+    }
+  }
+
+  /**
+   * @return true if the step has no static or dynamic parameters and nothing to be normalized by the daemon
+   */
+  static boolean isPlainStep(@NotNull String text) {
+    if (text.isEmpty()) return false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '"' || c == '<' || c == '>' || c == '{' || c == '}' || c == '\\') return false;
+      if (Character.isWhitespace(c) && (c != ' ' || i == 0 || i == text.length() - 1 || text.charAt(i - 1) == ' ')) return false;
+    }
+    return true;
+  }
+}
@@ -22,11 +22,10 @@ import com.intellij.openapi.module.Module;
 import com.intellij.psi.PsiElement;
 import com.thoughtworks.gauge.GaugeBootstrapService;
 import com.thoughtworks.gauge.StepValue;
-import com.thoughtworks.gauge.connection.GaugeConnection;
 import com.thoughtworks.gauge.core.GaugeCli;
+import com.thoughtworks.gauge.core.StepValueCache;
 import com.thoughtworks.gauge.language.psi.impl.SpecStepImpl;
 import com.thoughtworks.gauge.util.GaugeUtil;
-import com.thoughtworks.gauge.util.StepUtil;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
@@ -58,11 +57,11 @@ public final class SpecPsiImplUtil {
     if (gaugeCli == null) {
       return getDefaultStepValue(element);
     }
-    GaugeConnection apiConnection = gaugeCli.getGaugeConnection();
-    if (apiConnection == null) {
+    StepValueCache stepValueCache = gaugeCli.getStepValueCache();
+    if (stepValueCache == null) {
       return getDefaultStepValue(element);
     }
-    StepValue value = StepUtil.getStepValue(apiConnection, stepText, hasInlineTable);
+    StepValue value = stepValueCache.getStepValue(stepText, hasInlineTable);
     return value == null ? getDefaultStepValue(element) : value;
   }
 
@@ -27,7 +27,6 @@ import com.thoughtworks.gauge.Constants;
 import com.thoughtworks.gauge.GaugeBootstrapService;
 import com.thoughtworks.gauge.Step;
 import com.thoughtworks.gauge.StepValue;
-import com.thoughtworks.gauge.connection.GaugeConnection;
 import com.thoughtworks.gauge.language.psi.SpecPsiImplUtil;
 import com.thoughtworks.gauge.language.psi.SpecStep;
 import com.thoughtworks.gauge.language.psi.impl.ConceptConceptImpl;
@@ -40,7 +39,6 @@ import java.util.*;
 
 public final class StepUtil {
   private static final Logger LOG = Logger.getInstance(StepUtil.class);
-  private static final HashMap<String, StepValue> stepValueCache = new HashMap<>();
 
   public static PsiElement findStepImpl(SpecStep step, Module module) {
     if (module == null) {
@@ -140,16 +138,6 @@ public final class StepUtil {
     return false;
   }
 
-  public static StepValue getStepValue(final GaugeConnection connection, final String text, Boolean hasInlineTable) {
-    String stepText = hasInlineTable ? text + " <table>" : text;
-    StepValue value = stepValueCache.get(stepText);
-    if (value == null || value.getStepText().isEmpty()) {
-      value = connection.getStepValue(text, hasInlineTable);
-      stepValueCache.put(stepText, value);
-    }
-    return value;
-  }
-
   public static List<String> getGaugeStepAnnotationValues(PsiMethod stepMethod) {
     final PsiModifierList modifierList = stepMethod.getModifierList();
     final PsiAnnotation[] annotations = modifierList.getAnnotations();
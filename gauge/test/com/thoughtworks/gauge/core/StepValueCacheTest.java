@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2020 ThoughtWorks, Inc.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.thoughtworks.gauge.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StepValueCacheTest {
+  @Test
+  public void shouldTreatStepWithoutParametersAsPlain() {
+    assertTrue(StepValueCache.isPlainStep("Open the home page"));
+    assertTrue(StepValueCache.isPlainStep("Step with special chars +*-_.,!?'"));
+    assertTrue(StepValueCache.isPlainStep("a"));
+  }
+
+  @Test
+  public void shouldNotTreatEmptyStepAsPlain() {
+    assertFalse(StepValueCache.isPlainStep(""));
+  }
+
+  @Test
+  public void shouldNotTreatStepWithParametersAsPlain() {
+    assertFalse(StepValueCache.isPlainStep("Search for \"gauge\""));
+    assertFalse(StepValueCache.isPlainStep("Search for <query>"));
+    assertFalse(StepValueCache.isPlainStep("Greater than > sign"));
+    assertFalse(StepValueCache.isPlainStep("Step with {} placeholder"));
+  }
+
+  @Test
+  public void shouldNotTreatStepWithTableMarkerAsPlain() {
+    assertFalse(StepValueCache.isPlainStep("Check users <table>"));
+    assertFalse(StepValueCache.isPlainStep("Check users <table:users.csv>"));
+  }
+
+  @Test
+  public void shouldNotTreatStepWithEscapesAsPlain() {
+    assertFalse(StepValueCache.isPlainStep("Escaped \\\" quote"));
+    assertFalse(StepValueCache.isPlainStep("Trailing backslash \\"));
+  }
+
+  @Test
+  public void shouldNotTreatStepWithWhitespaceToNormalizeAsPlain() {
+    assertFalse(StepValueCache.isPlainStep(" Leading space"));
+    assertFalse(StepValueCache.isPlainStep("Trailing space "));
+    assertFalse(StepValueCache.isPlainStep("Double  space"));
+    assertFalse(StepValueCache.isPlainStep("Tab\tinside"));
+    assertFalse(StepValueCache.isPlainStep("Line\nbreak"));
+    assertFalse(StepValueCache.isPlainStep(" "));
+  }
+}
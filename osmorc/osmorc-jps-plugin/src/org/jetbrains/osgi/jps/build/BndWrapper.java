@@ -41,6 +41,7 @@ import org.jetbrains.osgi.jps.util.OrderedProperties;
 import java.io.File;
 import java.io.FileInputStream;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
@@ -53,6 +54,10 @@ import java.util.regex.Pattern;
  */
 @SuppressWarnings("HardCodedStringLiteral" /*IDEA-240279*/)
 public class BndWrapper {
+  private static final int MAX_WRAPPING_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+  private static final Map<String, FutureTask<File>> ourRunningWrappings = new ConcurrentHashMap<>();
+  private static final long CANCEL_CHECK_INTERVAL_MS = 100;
+
   private final Reporter myReporter;
 
   public BndWrapper(Reporter reporter) {
@@ -61,43 +66,119 @@ public class BndWrapper {
 
   /**
    * Wraps .jar files using Bnd analyzer. Uses bundlification rules defined in Settings/OSGi/Library Bundling.
+   * The libraries are wrapped in parallel, a wrapped library is shared by all modules with the same output directory.
+   * The reporter is asked to check for cancellation while the wrapping is in progress.
    */
   @NotNull
   public List<String> bundlifyLibraries(@NotNull Collection<File> dependencies,
                                         @NotNull File outputDir,
                                         @NotNull List<LibraryBundlificationRule> rules) {
-    List<String> result = new ArrayList<>(dependencies.size());
+    List<Future<File>> results = new ArrayList<>(dependencies.size());
+    ExecutorService executor = null;
 
-    for (File dependency : dependencies) {
-      String path = dependency.getPath();
-      if (CachingBundleInfoProvider.canBeBundlified(path)) {
-        myReporter.progress(path);
-        try {
-          File bundledDependency = wrap(dependency, outputDir, rules);
-          if (bundledDependency != null) {
-            result.add(bundledDependency.getPath());
+    try {
+      for (File dependency : dependencies) {
+        String path = dependency.getPath();
+        if (CachingBundleInfoProvider.canBeBundlified(path)) {
+          if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.min(MAX_WRAPPING_THREADS, dependencies.size()));
           }
+          results.add(executor.submit(() -> wrapShared(dependency, outputDir, rules)));
+        }
+        else if (CachingBundleInfoProvider.isBundle(path)) {
+          results.add(CompletableFuture.completedFuture(dependency));
         }
-        catch (OsgiBuildException e) {
-          myReporter.warning(e.getMessage(), e.getCause(), e.getSourcePath(), -1);
+      }
+
+      List<String> result = new ArrayList<>(results.size());
+      for (Future<File> future : results) {
+        File bundle = getWrappedLibrary(future);
+        if (bundle != null) {
+          result.add(bundle.getPath());
         }
       }
-      else if (CachingBundleInfoProvider.isBundle(path)) {
-        result.add(path);
+      return result;
+    }
+    finally {
+      if (executor != null) {
+        executor.shutdownNow();
       }
     }
+  }
 
-    return result;
+  @Nullable
+  private File getWrappedLibrary(@NotNull Future<File> future) {
+    try {
+      while (true) {
+        myReporter.checkCanceled();
+        try {
+          return future.get(CANCEL_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        catch (TimeoutException ignored) { }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof OsgiBuildException) {
+        OsgiBuildException buildException = (OsgiBuildException)cause;
+        myReporter.warning(buildException.getMessage(), buildException.getCause(), buildException.getSourcePath(), -1);
+      }
+      else {
+        myReporter.warning("There was an unexpected problem when trying to bundlify", cause, null, -1);
+      }
+    }
+    return null;
   }
 
+  /**
+   * Wraps the library, or waits for the wrapping of the same library with the same properties already started by another caller.
+   */
   @Nullable
-  private File wrap(@NotNull File sourceFile, @NotNull File outputDir, @NotNull List<LibraryBundlificationRule> rules) throws OsgiBuildException {
+  private File wrapShared(@NotNull File sourceFile, @NotNull File outputDir, @NotNull List<LibraryBundlificationRule> rules)
+    throws OsgiBuildException {
+    myReporter.progress(sourceFile.getPath());
+
+    WrappingRequest request = getWrappingRequest(sourceFile, outputDir, rules);
+    if (request == null) return null;
+
+    String key = request.myTargetFile.getAbsolutePath();
+    FutureTask<File> task = new FutureTask<>(() -> wrap(sourceFile, request));
+    FutureTask<File> running = ourRunningWrappings.putIfAbsent(key, task);
+    if (running == null) {
+      try {
+        task.run();
+      }
+      finally {
+        ourRunningWrappings.remove(key, task);
+      }
+      running = task;
+    }
+
+    try {
+      return running.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof OsgiBuildException) throw (OsgiBuildException)e.getCause();
+      throw new OsgiBuildException("There was an unexpected problem when trying to bundlify", e.getCause(), null);
+    }
+  }
+
+  @Nullable
+  private static WrappingRequest getWrappingRequest(@NotNull File sourceFile,
+                                                    @NotNull File outputDir,
+                                                    @NotNull List<LibraryBundlificationRule> rules) throws OsgiBuildException {
     if (!sourceFile.isFile()) {
       throw new OsgiBuildException("The library '" + sourceFile + "' does not exist - please check module dependencies.");
     }
 
-    File targetFile = new File(outputDir, sourceFile.getName());
-    Map<String, String> additionalProperties = new HashMap<>();
+    Map<String, String> additionalProperties = new TreeMap<>();
 
     long lastModified = Long.MIN_VALUE;
     for (LibraryBundlificationRule bundlificationRule : rules) {
@@ -113,14 +194,45 @@ public class BndWrapper {
       }
     }
 
-    if (targetFile.exists() && targetFile.lastModified() >= sourceFile.lastModified() && targetFile.lastModified() >= lastModified) {
+    // the same library wrapped with different properties goes to different files
+    String name = FileUtil.getNameWithoutExtension(sourceFile);
+    int hash = 31 * Long.hashCode(sourceFile.length()) + additionalProperties.hashCode();
+    File targetFile = new File(outputDir, name + '-' + Integer.toHexString(hash) + ".jar");
+
+    return new WrappingRequest(targetFile, additionalProperties, lastModified);
+  }
+
+  @NotNull
+  private File wrap(@NotNull File sourceFile, @NotNull WrappingRequest request) throws OsgiBuildException {
+    File targetFile = request.myTargetFile;
+    if (targetFile.exists() && targetFile.lastModified() >= sourceFile.lastModified() && targetFile.lastModified() >= request.myRulesLastModified) {
       return targetFile;
     }
 
-    doWrap(sourceFile, targetFile, additionalProperties);
+    doWrap(sourceFile, targetFile, request.myProperties);
+    deleteOutdatedBundles(sourceFile, targetFile);
     return targetFile;
   }
 
+  /**
+   * Deletes bundles of the library wrapped with other sizes or properties, and the bundle named after the library only.
+   * Bundles being wrapped at the moment are kept.
+   */
+  private void deleteOutdatedBundles(@NotNull File sourceFile, @NotNull File targetFile) {
+    File[] bundles = targetFile.getParentFile().listFiles();
+    if (bundles == null) return;
+
+    Pattern pattern = Pattern.compile(Pattern.quote(FileUtil.getNameWithoutExtension(sourceFile)) + "(-[0-9a-f]{1,8})?\\.jar");
+    for (File bundle : bundles) {
+      if (!bundle.equals(targetFile) &&
+          pattern.matcher(bundle.getName()).matches() &&
+          !ourRunningWrappings.containsKey(bundle.getAbsolutePath()) &&
+          !FileUtil.delete(bundle)) {
+        myReporter.debug("Can't delete outdated bundle '" + bundle + "'");
+      }
+    }
+  }
+
   // internal function which does the actual wrapping. 90% borrowed from the Bnd source code.
   private void doWrap(@NotNull File inputJar, @NotNull File outputJar, @NotNull Map<String, String> properties) throws OsgiBuildException {
     if (!FileUtil.delete(outputJar)) {
@@ -313,4 +425,16 @@ public class BndWrapper {
 
     return Collections.emptyList();
   }
+
+  private static final class WrappingRequest {
+    private final File myTargetFile;
+    private final Map<String, String> myProperties;
+    private final long myRulesLastModified;
+
+    private WrappingRequest(@NotNull File targetFile, @NotNull Map<String, String> properties, long rulesLastModified) {
+      myTargetFile = targetFile;
+      myProperties = properties;
+      myRulesLastModified = rulesLastModified;
+    }
+  }
 }
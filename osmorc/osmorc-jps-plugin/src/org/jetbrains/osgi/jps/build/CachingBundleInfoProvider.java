@@ -26,25 +26,29 @@ package org.jetbrains.osgi.jps.build;
 
 import aQute.bnd.osgi.Constants;
 import com.intellij.openapi.diagnostic.Logger;
-import com.intellij.openapi.util.Pair;
+import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
 /**
  * This is a helper class which helps providing information about bundles (that do not necessarily belong to the project).
+ * <p>
+ * Main manifest attributes are cached by the path of a bundle and are valid while the timestamp and the size of the .jar file
+ * (or of the manifest of an exploded bundle) stay the same. The cache is concurrent, so the callers do not wait for each other.
  *
  * @author <a href="mailto:janthomae@janthomae.de">Jan Thomä</a>
  */
 public class CachingBundleInfoProvider {
-  private static final Map<String, Pair<Long, Manifest>> ourCache = new WeakHashMap<>();
+  private static final Map<String, BundleInfo> ourCache = ContainerUtil.createConcurrentSoftValueMap();
 
   /**
    * True for .jar files or exploded directories with Bundle-SymbolicName in their manifests.
@@ -83,51 +87,58 @@ public class CachingBundleInfoProvider {
   }
 
   @Nullable
-  public synchronized static String getBundleAttribute(@NotNull String path, @NotNull String attribute) {
-    Pair<Long, Manifest> pair = ourCache.remove(path);
+  public static String getBundleAttribute(@NotNull String path, @NotNull String attribute) {
+    File bundleFile = new File(path);
+    File stampFile = bundleFile.isDirectory() ? new File(bundleFile, JarFile.MANIFEST_NAME) : bundleFile;
+    long lastModified = stampFile.lastModified();
+    long length = stampFile.length();
+    String key = bundleFile.getAbsolutePath();
 
-    try {
-      File bundleFile = new File(path);
-      if (bundleFile.isDirectory()) {
-        File manifestFile = new File(bundleFile, JarFile.MANIFEST_NAME);
-        if (pair == null || pair.first != manifestFile.lastModified()) {
-          pair = null;
-          FileInputStream stream = new FileInputStream(manifestFile);
-          try {
-            Manifest manifest = new Manifest(stream);
-            pair = Pair.create(manifestFile.lastModified(), manifest);
-          }
-          finally {
-            stream.close();
-          }
-        }
+    BundleInfo info = ourCache.get(key);
+    if (info == null || info.myLastModified != lastModified || info.myLength != length) {
+      Attributes attributes = null;
+      try {
+        attributes = readMainAttributes(bundleFile);
       }
-      else if (bundleFile.isFile()) {
-        if (pair == null || pair.first != bundleFile.lastModified()) {
-          pair = null;
-          JarFile jar = new JarFile(bundleFile);
-          try {
-            Manifest manifest = jar.getManifest();
-            if (manifest != null) {
-              pair = Pair.create(bundleFile.lastModified(), manifest);
-            }
-          }
-          finally {
-            jar.close();
-          }
-        }
+      catch (IOException e) {
+        Logger.getInstance(CachingBundleInfoProvider.class).debug(e);
       }
+      if (attributes == null) {
+        ourCache.remove(key);
+        return null;
+      }
+      info = new BundleInfo(lastModified, length, attributes);
+      ourCache.put(key, info);
     }
-    catch (IOException e) {
-      Logger.getInstance(CachingBundleInfoProvider.class).debug(e);
-    }
 
-    if (pair != null) {
-      ourCache.put(path, pair);
-      return pair.second.getMainAttributes().getValue(attribute);
+    return info.myAttributes.getValue(attribute);
+  }
+
+  @Nullable
+  private static Attributes readMainAttributes(@NotNull File bundleFile) throws IOException {
+    if (bundleFile.isDirectory()) {
+      try (InputStream stream = new FileInputStream(new File(bundleFile, JarFile.MANIFEST_NAME))) {
+        return new Manifest(stream).getMainAttributes();
+      }
     }
-    else {
-      return null;
+    else if (bundleFile.isFile()) {
+      try (JarFile jar = new JarFile(bundleFile)) {
+        Manifest manifest = jar.getManifest();
+        return manifest != null ? manifest.getMainAttributes() : null;
+      }
+    }
+    return null;
+  }
+
+  private static final class BundleInfo {
+    private final long myLastModified;
+    private final long myLength;
+    private final Attributes myAttributes;
+
+    private BundleInfo(long lastModified, long length, Attributes attributes) {
+      myLastModified = lastModified;
+      myLength = length;
+      myAttributes = attributes;
     }
   }
 }
@@ -17,4 +17,9 @@ public interface Reporter {
   void debug(@NotNull String message);
 
   String setReportSource(String source);
+
+  /**
+   * Called while waiting for long-running operations; throws an unchecked exception if the operation is cancelled.
+   */
+  default void checkCanceled() { }
 }
@@ -113,6 +113,11 @@ public class BundleCompiler implements Reporter {
     LOG.warn(message, t);
   }
 
+  @Override
+  public void checkCanceled() {
+    myIndicator.checkCanceled();
+  }
+
   @Override
   public boolean isDebugEnabled() {
     return LOG.isDebugEnabled();
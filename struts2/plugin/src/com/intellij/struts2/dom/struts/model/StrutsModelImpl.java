@@ -15,8 +15,12 @@
 
 package com.intellij.struts2.dom.struts.model;
 
-import com.intellij.openapi.util.Comparing;
+import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.xml.XmlFile;
 import com.intellij.struts2.dom.struts.StrutsRoot;
 import com.intellij.struts2.dom.struts.action.Action;
@@ -31,10 +35,12 @@ import com.intellij.util.SmartList;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.xml.DomFileElement;
 import com.intellij.util.xml.model.impl.DomModelImpl;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
 import org.jetbrains.annotations.NonNls;
 import org.jetbrains.annotations.NotNull;
@@ -51,6 +57,8 @@ class StrutsModelImpl extends DomModelImpl<StrutsRoot> implements StrutsModel {
   private static final Function<StrutsRoot, Collection<? extends StrutsPackage>> STRUTS_PACKAGE_COLLECTOR =
     strutsRoot -> strutsRoot.getPackages();
 
+  private volatile CachedValue<ActionLookup> myActionLookup;
+
   StrutsModelImpl(@NotNull final DomFileElement<StrutsRoot> strutsRootDomFileElement,
                   @NotNull final Set<XmlFile> xmlFiles) {
     super(strutsRootDomFileElement, xmlFiles);
@@ -85,50 +93,35 @@ class StrutsModelImpl extends DomModelImpl<StrutsRoot> implements StrutsModel {
   @NotNull
   public List<Action> findActionsByName(@NotNull @NonNls final String name,
                                         @Nullable @NonNls final String namespace) {
-    return ContainerUtil.findAll(getActionsForNamespace(namespace), action -> action.matchesPath(name));
+    return getActionLookup().findActionsByName(name, namespace);
   }
 
   @Override
   @NotNull
   public List<Action> findActionsByClass(@NotNull final PsiClass clazz) {
-    return findActionsByClassInner(clazz, false);
-  }
-
-  private List<Action> findActionsByClassInner(final PsiClass clazz,
-                                               final boolean skipOnFirst) {
-    final List<Action> actionResultList = new SmartList<>();
-
-    for (final StrutsPackage strutsPackage : getStrutsPackages()) {
-      for (final Action action : strutsPackage.getActions()) {
-        final PsiClass actionClassValue = action.searchActionClass();
-        if (Comparing.equal(clazz, actionClassValue)) {
-          actionResultList.add(action);
-          if (skipOnFirst) {
-            return actionResultList;
-          }
-        }
-      }
-    }
-
-    return actionResultList;
+    final List<Action> actions = getActionLookup().getActionsByClass().get(clazz);
+    return actions == null ? new SmartList<>() : new SmartList<>(actions);
   }
 
   @Override
   public boolean isActionClass(@NotNull final PsiClass clazz) {
-    return !findActionsByClassInner(clazz, true).isEmpty();
+    return getActionLookup().getActionsByClass().containsKey(clazz);
   }
 
   @Override
   public List<Action> getActionsForNamespace(@Nullable @NonNls final String namespace) {
-    final List<Action> actionResultList = new SmartList<>();
+    final NamespaceActions namespaceActions = getActionLookup().getNamespaceActions(namespace);
+    return namespaceActions == null ? new SmartList<>() : new SmartList<>(namespaceActions.myActions);
+  }
 
-    for (final StrutsPackage strutsPackage : getStrutsPackages()) {
-      if (namespace == null ||
-          Objects.equals(namespace, strutsPackage.searchNamespace())) {
-        actionResultList.addAll(strutsPackage.getActions());
-      }
+  private ActionLookup getActionLookup() {
+    if (myActionLookup == null) {
+      final Project project = getMergedModel().getManager().getProject();
+      myActionLookup = CachedValuesManager.getManager(project).createCachedValue(
+        () -> CachedValueProvider.Result.create(new ActionLookup(getStrutsPackages()), PsiModificationTracker.MODIFICATION_COUNT),
+        false);
     }
-    return actionResultList;
+    return myActionLookup.getValue();
   }
 
   @Override
@@ -139,4 +132,103 @@ class StrutsModelImpl extends DomModelImpl<StrutsRoot> implements StrutsModel {
     }
     return true;
   }
+
+  /**
+   * Actions of all packages by namespace, name and action class.
+   */
+  private static final class ActionLookup {
+
+    private final NamespaceActions myAllActions = new NamespaceActions();
+    private final Map<String, NamespaceActions> myActionsByNamespace = new HashMap<>();
+    private volatile Map<PsiClass, List<Action>> myActionsByClass;
+
+    private ActionLookup(final List<StrutsPackage> strutsPackages) {
+      for (final StrutsPackage strutsPackage : strutsPackages) {
+        final NamespaceActions namespaceActions =
+          myActionsByNamespace.computeIfAbsent(strutsPackage.searchNamespace(), namespace -> new NamespaceActions());
+        for (final Action action : strutsPackage.getActions()) {
+          myAllActions.add(action);
+          namespaceActions.add(action);
+        }
+      }
+    }
+
+    @Nullable
+    private NamespaceActions getNamespaceActions(@Nullable final String namespace) {
+      return namespace == null ? myAllActions : myActionsByNamespace.get(namespace);
+    }
+
+    private List<Action> findActionsByName(final String name, @Nullable final String namespace) {
+      final NamespaceActions namespaceActions = getNamespaceActions(namespace);
+      return namespaceActions == null ? new SmartList<>() : namespaceActions.findActionsByName(name);
+    }
+
+    /**
+     * Resolving the action classes is expensive, so the map is built on the first request.
+     */
+    private Map<PsiClass, List<Action>> getActionsByClass() {
+      Map<PsiClass, List<Action>> actionsByClass = myActionsByClass;
+      if (actionsByClass == null) {
+        actionsByClass = new HashMap<>();
+        for (final Action action : myAllActions.myActions) {
+          final PsiClass actionClass = action.searchActionClass();
+          if (actionClass != null) {
+            actionsByClass.computeIfAbsent(actionClass, psiClass -> new SmartList<>()).add(action);
+          }
+        }
+        myActionsByClass = actionsByClass;
+      }
+      return actionsByClass;
+    }
+  }
+
+  /**
+   * Actions of a namespace, the actions with plain names are mapped by name, the wildcard mappings are matched one by one.
+   */
+  private static final class NamespaceActions {
+
+    private final List<Action> myActions = new ArrayList<>();
+    private final Map<String, List<Integer>> myActionIndicesByName = new HashMap<>();
+    private final List<Integer> myWildcardActionIndices = new ArrayList<>();
+
+    private void add(final Action action) {
+      final int index = myActions.size();
+      myActions.add(action);
+
+      final String name = action.getName().getRawText();
+      if (name == null) {
+        return;
+      }
+      if (action.isWildcardMapping()) {
+        myWildcardActionIndices.add(index);
+      }
+      else {
+        myActionIndicesByName.computeIfAbsent(name, s -> new SmartList<>()).add(index);
+      }
+    }
+
+    private List<Action> findActionsByName(final String name) {
+      final int bangIdx = name.indexOf('!');
+      final List<Integer> byName = myActionIndicesByName.get(bangIdx == -1 ? name : name.substring(0, bangIdx));
+
+      final List<Action> result = new SmartList<>();
+      int wildcardIdx = 0;
+      int byNameIdx = 0;
+      final int byNameSize = byName == null ? 0 : byName.size();
+      // merge both lists to keep the order of the actions in the model
+      while (byNameIdx < byNameSize || wildcardIdx < myWildcardActionIndices.size()) {
+        if (wildcardIdx == myWildcardActionIndices.size() ||
+            byNameIdx < byNameSize && byName.get(byNameIdx) < myWildcardActionIndices.get(wildcardIdx)) {
+          result.add(myActions.get(byName.get(byNameIdx++)));
+        }
+        else {
+          final Action action = myActions.get(myWildcardActionIndices.get(wildcardIdx++));
+          if (action.matchesPath(name)) {
+            result.add(action);
+          }
+        }
+      }
+      return result;
+    }
+  }
 }
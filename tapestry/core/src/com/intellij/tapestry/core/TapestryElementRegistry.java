@@ -0,0 +1,284 @@
+package com.intellij.tapestry.core;
+
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.io.FileUtilRt;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiFile;
+import com.intellij.tapestry.core.exceptions.NotTapestryElementException;
+import com.intellij.tapestry.core.java.IJavaClassType;
+import com.intellij.tapestry.core.model.TapestryLibrary;
+import com.intellij.tapestry.core.model.presentation.PresentationLibraryElement;
+import com.intellij.tapestry.core.resource.IResource;
+import com.intellij.tapestry.core.util.LocalizationUtils;
+import com.intellij.tapestry.core.util.PathUtils;
+import com.intellij.tapestry.intellij.core.java.IntellijJavaClassType;
+import com.intellij.util.PathUtil;
+import gnu.trove.THashMap;
+import gnu.trove.THashSet;
+import gnu.trove.TLongArrayList;
+import gnu.trove.TObjectHashingStrategy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * All pages, components and mixins of a Tapestry project, collected from the libraries in a single pass.
+ * <p>
+ * The registry is rebuilt when the project changes, but the elements whose class files and superclass files did not change
+ * since the previous build are taken from it instead of being created again, together with their cached templates, message
+ * catalogs and parameters.
+ * The cached templates notice removed files themselves, the caches of the elements with the templates or message catalogs
+ * created since the previous build are reset.
+ */
+final class TapestryElementRegistry {
+  private static final TObjectHashingStrategy<String> CASE_INSENSITIVE = new TObjectHashingStrategy<String>() {
+    @Override
+    public int computeHashCode(String object) {
+      return StringUtil.stringHashCodeInsensitive(object);
+    }
+
+    @Override
+    public boolean equals(String o1, String o2) {
+      return o1.equalsIgnoreCase(o2);
+    }
+  };
+
+  private final Map<String, PresentationLibraryElement> myNameToPage = new THashMap<>();
+  private final Map<String, PresentationLibraryElement> myFqnToPage = new THashMap<>();
+  private final Map<String, PresentationLibraryElement> myNameToComponent = new THashMap<>();
+  private final Map<String, PresentationLibraryElement> myNameToMixin = new THashMap<>();
+  private final Map<String, PresentationLibraryElement> myFqnToComponent = new THashMap<>();
+  // components, abstract components and pages with the short names of their libraries, templates are looked up on the first request
+  private final List<Pair<String, PresentationLibraryElement>> myTemplateOwners = new ArrayList<>();
+  private volatile Map<String, PresentationLibraryElement> myTemplateToElement;
+
+  private final Map<String, ElementEntry> myElementEntries = new THashMap<>();
+
+  /**
+   * @param createdResourceOwnerKeys {@link #getResourceOwnerKey} of the templates and message catalogs created since the previous build
+   */
+  TapestryElementRegistry(@NotNull TapestryProject project,
+                          @Nullable TapestryElementRegistry previous,
+                          @NotNull Set<String> createdResourceOwnerKeys) {
+    Map<String, ElementEntry> previousEntries = previous == null ? null : previous.myElementEntries;
+    for (TapestryLibrary library : project.getLibraries()) {
+      String shortName = library.getShortName();
+
+      Map<String, PresentationLibraryElement> components =
+        findElements(project, library, TapestryConstants.COMPONENTS_PACKAGE, previousEntries, createdResourceOwnerKeys);
+      addAll(myNameToComponent, components.values(), shortName, TapestryElementRegistry::getNameKey);
+      addAll(myFqnToComponent, components.values(), shortName, TapestryElementRegistry::getFqnKey);
+      addTemplateOwners(components.values(), shortName);
+
+      Map<String, PresentationLibraryElement> abstractComponents =
+        findElements(project, library, TapestryConstants.BASE_PACKAGE, previousEntries, createdResourceOwnerKeys);
+      addTemplateOwners(abstractComponents.values(), shortName);
+
+      Map<String, PresentationLibraryElement> pages =
+        findElements(project, library, TapestryConstants.PAGES_PACKAGE, previousEntries, createdResourceOwnerKeys);
+      addAll(myNameToPage, pages.values(), shortName, TapestryElementRegistry::getNameKey);
+      addAll(myFqnToPage, pages.values(), shortName, TapestryElementRegistry::getFqnKey);
+      addTemplateOwners(pages.values(), shortName);
+
+      Map<String, PresentationLibraryElement> mixins =
+        findElements(project, library, TapestryConstants.MIXINS_PACKAGE, previousEntries, createdResourceOwnerKeys);
+      addAll(myNameToMixin, mixins.values(), shortName, TapestryElementRegistry::getNameKey);
+    }
+
+    Collection<PresentationLibraryElement> builtinComponents = project.getBuiltinComponents();
+    addAll(myNameToComponent, builtinComponents, null, TapestryElementRegistry::getNameKey);
+    addAll(myFqnToComponent, builtinComponents, null, TapestryElementRegistry::getFqnKey);
+    addTemplateOwners(builtinComponents, null);
+
+    Collection<PresentationLibraryElement> builtinPages = project.getBuiltinPages();
+    addAll(myNameToPage, builtinPages, null, TapestryElementRegistry::getNameKey);
+    addAll(myFqnToPage, builtinPages, null, TapestryElementRegistry::getFqnKey);
+    addTemplateOwners(builtinPages, null);
+  }
+
+  @NotNull
+  Map<String, PresentationLibraryElement> getNameToPage() {
+    return myNameToPage;
+  }
+
+  @NotNull
+  Map<String, PresentationLibraryElement> getFqnToPage() {
+    return myFqnToPage;
+  }
+
+  @NotNull
+  Map<String, PresentationLibraryElement> getNameToComponent() {
+    return myNameToComponent;
+  }
+
+  @NotNull
+  Map<String, PresentationLibraryElement> getNameToMixin() {
+    return myNameToMixin;
+  }
+
+  @NotNull
+  Map<String, PresentationLibraryElement> getFqnToComponent() {
+    return myFqnToComponent;
+  }
+
+  @NotNull
+  Map<String, PresentationLibraryElement> getTemplateToElement() {
+    Map<String, PresentationLibraryElement> templateToElement = myTemplateToElement;
+    if (templateToElement == null) {
+      templateToElement = new THashMap<>();
+      for (Pair<String, PresentationLibraryElement> owner : myTemplateOwners) {
+        put(templateToElement, owner.second, owner.first, TapestryElementRegistry::getTemplateKey);
+      }
+      myTemplateToElement = templateToElement;
+    }
+    return templateToElement;
+  }
+
+  /**
+   * Same as {@link TapestryLibrary#getComponents()} and the other element getters, but reuses the unchanged elements.
+   */
+  @NotNull
+  private Map<String, PresentationLibraryElement> findElements(@NotNull TapestryProject project,
+                                                               @NotNull TapestryLibrary library,
+                                                               @NotNull String subpackage,
+                                                               @Nullable Map<String, ElementEntry> previousEntries,
+                                                               @NotNull Set<String> createdResourceOwnerKeys) {
+    Map<String, PresentationLibraryElement> elements = new THashMap<>(CASE_INSENSITIVE);
+    String libraryKey = library.getId() + ':' + library.getShortName() + ':' + library.getBasePackage() + ':';
+
+    for (IJavaClassType type : project.getJavaTypeFinder().findTypesInPackageRecursively(library.getBasePackage() + "." + subpackage, true)) {
+      String fqn = type.getFullyQualifiedName();
+      long[] stamps = getModificationStamps(type);
+      String entryKey = libraryKey + fqn;
+
+      ElementEntry entry = previousEntries == null || stamps == null ? null : previousEntries.get(entryKey);
+      if (entry == null || !Arrays.equals(entry.myStamps, stamps)) {
+        try {
+          entry = new ElementEntry(stamps, PresentationLibraryElement.createElementInstance(library, type, project));
+        }
+        catch (NotTapestryElementException e) {
+          entry = new ElementEntry(stamps, null);
+        }
+      }
+      else if (entry.myElement != null && createdResourceOwnerKeys.contains(getOwnerKey(entry.myElement))) {
+        entry.myElement.resetResourceCaches();
+      }
+      myElementEntries.put(entryKey, entry);
+
+      if (entry.myElement != null) {
+        elements.put(entry.myElement.getName(), entry.myElement);
+      }
+    }
+    return elements;
+  }
+
+  /**
+   * Templates and message catalogs are looked up by the last element of the element name, see {@link PresentationLibraryElement#getTemplate()}.
+   *
+   * @return the key of the elements the template or message catalog may belong to, {@code null} if the path is not a template
+   * or a message catalog
+   */
+  @Nullable
+  static String getResourceOwnerKey(@NotNull String path) {
+    String fileName = LocalizationUtils.unlocalizeFileName(PathUtil.getFileName(path));
+    String extension = FileUtilRt.getExtension(fileName);
+    if (!extension.equals(TapestryConstants.TEMPLATE_FILE_EXTENSION) &&
+        !('.' + extension).equals(TapestryConstants.PROPERTIES_FILE_EXTENSION)) {
+      return null;
+    }
+    return StringUtil.toLowerCase(FileUtilRt.getNameWithoutExtension(fileName));
+  }
+
+  @NotNull
+  private static String getOwnerKey(@NotNull PresentationLibraryElement element) {
+    return StringUtil.toLowerCase(PathUtils.getLastPathElement(element.getName()));
+  }
+
+  /**
+   * The parameters and the documentation of an element include the inherited fields, so the superclass files are checked too.
+   *
+   * @return the modification stamps of the files of the class and its superclasses, {@code null} if they are unknown
+   */
+  @Nullable
+  private static long[] getModificationStamps(@NotNull IJavaClassType type) {
+    if (!(type instanceof IntellijJavaClassType)) return null;
+    TLongArrayList stamps = new TLongArrayList();
+    Set<PsiClass> visited = new THashSet<>();
+    PsiClass psiClass = ((IntellijJavaClassType)type).getPsiClass();
+    while (psiClass != null && visited.add(psiClass)) {
+      PsiFile file = psiClass.isValid() ? psiClass.getContainingFile() : null;
+      if (file == null) return null;
+      stamps.add(file.getModificationStamp());
+      psiClass = psiClass.getSuperClass();
+    }
+    return stamps.isEmpty() ? null : stamps.toNativeArray();
+  }
+
+  private void addTemplateOwners(@NotNull Collection<PresentationLibraryElement> elements, @Nullable String libraryShortName) {
+    for (PresentationLibraryElement element : elements) {
+      myTemplateOwners.add(Pair.create(libraryShortName, element));
+    }
+  }
+
+  private static void addAll(@NotNull Map<String, PresentationLibraryElement> map,
+                             @NotNull Collection<PresentationLibraryElement> elements,
+                             @Nullable String libraryShortName,
+                             @NotNull KeyFunction keyFunction) {
+    for (PresentationLibraryElement element : elements) {
+      put(map, element, libraryShortName, keyFunction);
+    }
+  }
+
+  private static void put(@NotNull Map<String, PresentationLibraryElement> map,
+                          @Nullable PresentationLibraryElement element,
+                          @Nullable String libraryShortName,
+                          @NotNull KeyFunction keyFunction) {
+    String key = element == null ? null : keyFunction.computeKey(element);
+    if (key != null) {
+      if (!StringUtil.isEmpty(libraryShortName)) {
+        key = libraryShortName + "/" + key;
+      }
+      map.put(key, element);
+    }
+  }
+
+  @Nullable
+  private static String getNameKey(@NotNull PresentationLibraryElement element) {
+    return StringUtil.toLowerCase(element.getName());
+  }
+
+  @Nullable
+  private static String getFqnKey(@NotNull PresentationLibraryElement element) {
+    return element.getElementClass().getFullyQualifiedName();
+  }
+
+  @Nullable
+  private static String getTemplateKey(@NotNull PresentationLibraryElement element) {
+    IResource[] resources = element.getTemplate();
+    return resources.length > 0 ? LocalizationUtils.unlocalizeFileName(resources[0].getFile().getAbsolutePath()) : null;
+  }
+
+  private interface KeyFunction {
+    @Nullable
+    String computeKey(@NotNull PresentationLibraryElement element);
+  }
+
+  private static final class ElementEntry {
+    @Nullable
+    private final long[] myStamps;
+    @Nullable
+    private final PresentationLibraryElement myElement;
+
+    private ElementEntry(@Nullable long[] stamps, @Nullable PresentationLibraryElement element) {
+      myStamps = stamps;
+      myElement = element;
+    }
+  }
+}
@@ -6,7 +6,11 @@ import com.intellij.psi.*;
 import com.intellij.psi.impl.java.stubs.index.JavaAnnotationIndex;
 import com.intellij.psi.impl.java.stubs.index.JavaMethodNameIndex;
 import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.tapestry.core.events.FileSystemListenerAdapter;
 import com.intellij.tapestry.core.events.TapestryEventsManager;
 import com.intellij.tapestry.core.java.IJavaClassType;
 import com.intellij.tapestry.core.java.IJavaTypeCreator;
@@ -20,13 +24,14 @@ import com.intellij.tapestry.core.model.presentation.components.BlockComponent;
 import com.intellij.tapestry.core.model.presentation.components.BodyComponent;
 import com.intellij.tapestry.core.model.presentation.components.ContainerComponent;
 import com.intellij.tapestry.core.model.presentation.components.ParameterComponent;
-import com.intellij.tapestry.core.resource.IResource;
 import com.intellij.tapestry.core.resource.IResourceFinder;
 import com.intellij.tapestry.core.util.LocalizationUtils;
 import com.intellij.tapestry.intellij.facet.TapestryFacet;
 import com.intellij.tapestry.intellij.facet.TapestryFacetConfiguration;
 import com.intellij.util.ArrayUtilRt;
+import com.intellij.util.containers.ContainerUtil;
 import gnu.trove.THashMap;
+import gnu.trove.THashSet;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -64,7 +69,11 @@ public class TapestryProject {
   private final TapestryEventsManager myEventsManager;
 
   private final MappingDataCache mappingData = new MappingDataCache();
-
+  private final CachedValue<Map<String, List<String>>> myLibraryMapping;
+  private final CachedValue<TapestryElementRegistry> myElementRegistry;
+  private volatile TapestryElementRegistry myLastElementRegistry;
+  // elements with templates or message catalogs created since the last registry build, see TapestryElementRegistry#getResourceOwnerKey
+  private final Set<String> myCreatedResourceOwnerKeys = ContainerUtil.newConcurrentSet();
 
   public TapestryProject(@NotNull Module module,
                          @NotNull IResourceFinder resourceFinder,
@@ -78,6 +87,37 @@ public class TapestryProject {
     myEventsManager = new TapestryEventsManager();
     myLastApplicationPackage = null;
     myLastApplicationFilterName = null;
+
+    CachedValuesManager cachedValuesManager = CachedValuesManager.getManager(module.getProject());
+    myLibraryMapping = cachedValuesManager.createCachedValue(
+      () -> CachedValueProvider.Result.create(findLibraryMapping(), JAVA_STRUCTURE_DEPENDENCY), false);
+    myEventsManager.addFileSystemListener(new FileSystemListenerAdapter() {
+      @Override
+      public void fileCreated(String path) {
+        resourceFileAdded(path);
+      }
+    });
+    myElementRegistry = cachedValuesManager.createCachedValue(() -> {
+      Set<String> createdResourceOwnerKeys = new THashSet<>(myCreatedResourceOwnerKeys);
+      TapestryElementRegistry registry = new TapestryElementRegistry(this, myLastElementRegistry, createdResourceOwnerKeys);
+      // the keys added during the build are kept for the next one
+      myCreatedResourceOwnerKeys.removeAll(createdResourceOwnerKeys);
+      myLastElementRegistry = registry;
+      return CachedValueProvider.Result.create(registry, JAVA_STRUCTURE_DEPENDENCY);
+    }, false);
+  }
+
+  /**
+   * Called when a file is created, moved or renamed. If it is a template or a message catalog, the reused elements it may belong to
+   * reset their cached templates and message catalogs on the next registry build.
+   *
+   * @param path the path of the file.
+   */
+  public void resourceFileAdded(@NotNull String path) {
+    String ownerKey = TapestryElementRegistry.getResourceOwnerKey(path);
+    if (ownerKey != null) {
+      myCreatedResourceOwnerKeys.add(ownerKey);
+    }
   }
 
   /**
@@ -140,7 +180,7 @@ public class TapestryProject {
     String applicationRootPackage = getApplicationRootPackage();
     String applicationFilterName = getApplicationFilterName();
     if (applicationRootPackage == null) return Collections.emptyList();
-    final Map<String, List<String>> libraryMapping = findLibraryMapping();
+    final Map<String, List<String>> libraryMapping = myLibraryMapping.getValue();
     // volatile read
     if (isNotEmpty(myLastApplicationPackage) && isNotEmpty(myLastApplicationFilterName) && myCachedLibraries != null) {
       if (myLastApplicationPackage.equals(applicationRootPackage)
@@ -192,22 +232,14 @@ public class TapestryProject {
    */
   @Nullable
   public Page findPage(String pageName) {
-    return (Page)ourNameToPageMap.get(myModule).get(StringUtil.toLowerCase(pageName));
+    return (Page)getElementRegistry().getNameToPage().get(StringUtil.toLowerCase(pageName));
   }
 
   public String @NotNull [] getAvailablePageNames() {
-    final Set<String> names = ourNameToPageMap.get(myModule).keySet();
+    final Set<String> names = getElementRegistry().getNameToPage().keySet();
     return ArrayUtilRt.toStringArray(names);
   }
 
-  private static final ElementsCachedMap ourNameToPageMap = new ElementsCachedMap("ourNameToPageMap", false, true, false) {
-    @Override
-    protected String computeKey(PresentationLibraryElement element) {
-      return StringUtil.toLowerCase(element.getName());
-    }
-  };
-
-
   /**
    * Finds a page by class in the Tapestry application.
    *
@@ -216,16 +248,9 @@ public class TapestryProject {
    */
   @Nullable
   public Page findPage(@NotNull IJavaClassType pageClass) {
-    return (Page)ourFqnToPageMap.get(myModule).get(pageClass.getFullyQualifiedName());
+    return (Page)getElementRegistry().getFqnToPage().get(pageClass.getFullyQualifiedName());
   }
 
-  private static final ElementsCachedMap ourFqnToPageMap = new ElementsCachedMap("ourFqnToPageMap", false, true, false) {
-    @Override
-    protected String computeKey(PresentationLibraryElement element) {
-      return element.getElementClass().getFullyQualifiedName();
-    }
-  };
-
   /**
    * Finds a component by name in the Tapestry application.
    *
@@ -234,7 +259,7 @@ public class TapestryProject {
    */
   @Nullable
   public TapestryComponent findComponent(@NotNull String componentName) {
-    return (TapestryComponent)ourNameToComponentMap.get(myModule).get(StringUtil.toLowerCase(componentName));
+    return (TapestryComponent)getElementRegistry().getNameToComponent().get(StringUtil.toLowerCase(componentName));
   }
 
   /**
@@ -245,7 +270,7 @@ public class TapestryProject {
    */
   @Nullable
   public Mixin findMixin(String mixinName) {
-    return (Mixin)ourNameToMixinMap.get(myModule).get(StringUtil.toLowerCase(mixinName));
+    return (Mixin)getElementRegistry().getNameToMixin().get(StringUtil.toLowerCase(mixinName));
   }
 
   @NotNull
@@ -284,24 +309,10 @@ public class TapestryProject {
   }
 
   public String @NotNull [] getAvailableComponentNames() {
-    final Set<String> names = ourNameToComponentMap.get(myModule).keySet();
+    final Set<String> names = getElementRegistry().getNameToComponent().keySet();
     return ArrayUtilRt.toStringArray(names);
   }
 
-  private static final ElementsCachedMap ourNameToComponentMap = new ElementsCachedMap("ourNameToComponentMap", true, false, false) {
-    @Override
-    protected String computeKey(PresentationLibraryElement element) {
-      return StringUtil.toLowerCase(element.getName());
-    }
-  };
-
-  private static final ElementsCachedMap ourNameToMixinMap = new ElementsCachedMap("ourNameToMixinMap", false, false, true) {
-    @Override
-    protected String computeKey(PresentationLibraryElement element) {
-      return StringUtil.toLowerCase(element.getName());
-    }
-  };
-
   public Collection<PresentationLibraryElement> getBuiltinComponents() {
     return Arrays.asList(BodyComponent.getInstance(this), BlockComponent.getInstance(this),
                          ParameterComponent.getInstance(this),
@@ -332,16 +343,9 @@ public class TapestryProject {
    */
   @Nullable
   public TapestryComponent findComponent(@NotNull IJavaClassType componentClass) {
-    return (TapestryComponent)ourFqnToComponentMap.get(myModule).get(componentClass.getFullyQualifiedName());
+    return (TapestryComponent)getElementRegistry().getFqnToComponent().get(componentClass.getFullyQualifiedName());
   }
 
-  private static final ElementsCachedMap ourFqnToComponentMap = new ElementsCachedMap("ourFqnToComponentMap", true, false, false) {
-    @Override
-    protected String computeKey(PresentationLibraryElement element) {
-      return element.getElementClass().getFullyQualifiedName();
-    }
-  };
-
   /**
    * Finds the component class from it's template.
    *
@@ -351,21 +355,20 @@ public class TapestryProject {
   @Nullable
   public PresentationLibraryElement findElementByTemplate(@NotNull PsiFile template) {
     String templatePath = new File(template.getOriginalFile().getViewProvider().getVirtualFile().getPath()).getAbsolutePath();
-    return ourTemplateToElementMap.get(myModule).get(LocalizationUtils.unlocalizeFileName(templatePath));
+    return getElementRegistry().getTemplateToElement().get(LocalizationUtils.unlocalizeFileName(templatePath));
   }
 
-  private static final ElementsCachedMap ourTemplateToElementMap = new ElementsCachedMap("ourTemplateToElementMap", true, true, false, true) {
-    @Override
-    @Nullable
-    protected String computeKey(PresentationLibraryElement element) {
-      final IResource[] resources = element.getTemplate();
-      return resources.length > 0 ? LocalizationUtils.unlocalizeFileName(resources[0].getFile().getAbsolutePath()) : null;
-    }
-  };
+  /**
+   * All pages, components and mixins of the project, rebuilt on changes from the unchanged elements of the previous registry.
+   */
+  @NotNull
+  private TapestryElementRegistry getElementRegistry() {
+    return myElementRegistry.getValue();
+  }
 
   @NotNull
   public Collection<PresentationLibraryElement> getAvailableElements() {
-    return ourFqnToComponentMap.get(myModule).values();
+    return getElementRegistry().getFqnToComponent().values();
   }
 
   @NotNull
@@ -62,6 +62,15 @@ public class Page extends PresentationLibraryElement implements ExternalizableTo
         return _templateCache;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetResourceCaches() {
+        super.resetResourceCaches();
+        _templateCache = null;
+    }
+
     @Override
     public String getTemplateRepresentation(String namespacePrefix) throws Exception {
         return ExternalizeToTemplateChain.getInstance().externalize(this, namespacePrefix);
@@ -179,6 +179,14 @@ public abstract class PresentationLibraryElement implements ExternalizableToDocu
     return _messageCatalogCache;
   }
 
+  /**
+   * Drops the cached templates and message catalogs, so they are looked up again on the next request.
+   * Removed resources are noticed without this, but the resources added next to the element class are not.
+   */
+  public void resetResourceCaches() {
+    _messageCatalogCache = null;
+  }
+
   /**
    * Returns the element documentation.
    *
@@ -61,6 +61,15 @@ public class TapestryComponent extends ParameterReceiverElement implements Exter
     return _templateCache;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void resetResourceCaches() {
+    super.resetResourceCaches();
+    _templateCache = null;
+  }
+
   @Override
   public String getTemplateRepresentation(String namespacePrefix) throws Exception {
     return ExternalizeToTemplateChain.getInstance().externalize(this, namespacePrefix);
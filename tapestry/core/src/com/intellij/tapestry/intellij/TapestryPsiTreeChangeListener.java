@@ -75,6 +75,36 @@ class TapestryPsiTreeChangeListener extends PsiTreeChangeAdapter {
     tapestryProject.getEventsManager().fileCreated(psiFile.getVirtualFile().getPath());
   }
 
+  @Override
+  public void childMoved(@NotNull PsiTreeChangeEvent event) {
+    if (event.getChild() instanceof PsiFile) {
+      fileAddedAtNewPath((PsiFile)event.getChild());
+    }
+  }
+
+  @Override
+  public void propertyChanged(@NotNull PsiTreeChangeEvent event) {
+    if (PsiTreeChangeEvent.PROP_FILE_NAME.equals(event.getPropertyName()) && event.getElement() instanceof PsiFile) {
+      fileAddedAtNewPath((PsiFile)event.getElement());
+    }
+  }
+
+  /**
+   * A moved or renamed file may become a template or a message catalog of an element. It is not reported to the listeners as created,
+   * only the element registry is notified.
+   */
+  private static void fileAddedAtNewPath(@NotNull PsiFile psiFile) {
+    Module module = ModuleUtilCore.findModuleForPsiElement(psiFile);
+    if (module == null || module.isDisposed()) return;
+    TapestryProject tapestryProject = TapestryModuleSupportLoader.getTapestryProject(module);
+
+    if (tapestryProject == null || !TapestryUtils.isTapestryModule(module) || psiFile.getVirtualFile() == null) {
+      return;
+    }
+
+    tapestryProject.resourceFileAdded(psiFile.getVirtualFile().getPath());
+  }
+
   @Nullable
   private static Module getModuleFromEvent(PsiTreeChangeEvent event) {
     PsiElement parent = event.getParent();
@@ -0,0 +1,21 @@
+package com.intellij.tapestry.core;
+
+import org.testng.annotations.Test;
+
+public class TapestryElementRegistryTest {
+
+  @Test
+  public void resourceOwnerKey() {
+    assert "index".equals(TapestryElementRegistry.getResourceOwnerKey("/project/src/com/app/pages/Index.tml"));
+
+    assert "index".equals(TapestryElementRegistry.getResourceOwnerKey("/project/web/admin/Index_pt.tml"));
+
+    assert "layout".equals(TapestryElementRegistry.getResourceOwnerKey("/project/src/com/app/components/Layout.properties"));
+
+    assert "layout".equals(TapestryElementRegistry.getResourceOwnerKey("/project/src/com/app/components/Layout_pt_PT.properties"));
+
+    assert TapestryElementRegistry.getResourceOwnerKey("/project/src/com/app/pages/Index.java") == null;
+
+    assert TapestryElementRegistry.getResourceOwnerKey("/project/src/com/app/pages") == null;
+  }
+}
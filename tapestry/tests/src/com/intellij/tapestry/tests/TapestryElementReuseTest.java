@@ -0,0 +1,50 @@
+package com.intellij.tapestry.tests;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.tapestry.core.TapestryProject;
+import com.intellij.tapestry.core.model.presentation.TapestryComponent;
+import com.intellij.tapestry.intellij.TapestryModuleSupportLoader;
+
+public class TapestryElementReuseTest extends TapestryBaseTestCase {
+  private static final String BASE_TEXT = "package com.testapp.base;\n" +
+                                          "import org.apache.tapestry5.annotations.Parameter;\n" +
+                                          "public abstract class BaseComp {\n" +
+                                          "  @Parameter private String title;\n" +
+                                          "}";
+
+  public void testSuperclassParameterChange() {
+    PsiFile baseFile = myFixture.addFileToProject(ABSTRACT_COMPONENTS_PACKAGE_PATH + "BaseComp.java", BASE_TEXT);
+    myFixture.addFileToProject(COMPONENTS_PACKAGE_PATH + "SubComp.java",
+                               "package com.testapp.components; public class SubComp extends com.testapp.base.BaseComp {}");
+    myFixture.addFileToProject(COMPONENTS_PACKAGE_PATH + "Other.java",
+                               "package com.testapp.components; public class Other {}");
+
+    TapestryProject tapestryProject = TapestryModuleSupportLoader.getTapestryProject(myModule);
+    TapestryComponent subComp = tapestryProject.findComponent("SubComp");
+    TapestryComponent other = tapestryProject.findComponent("Other");
+    assertNotNull(subComp);
+    assertTrue(subComp.getParameters().containsKey("title"));
+    assertFalse(subComp.getParameters().containsKey("label"));
+
+    WriteCommandAction.runWriteCommandAction(myFixture.getProject(), () -> {
+      PsiDocumentManager documentManager = PsiDocumentManager.getInstance(myFixture.getProject());
+      Document document = documentManager.getDocument(baseFile);
+      document.setText(BASE_TEXT.replace("}", "  @Parameter private String label;\n}"));
+      documentManager.commitDocument(document);
+    });
+
+    TapestryComponent changedSubComp = tapestryProject.findComponent("SubComp");
+    assertNotNull(changedSubComp);
+    assertTrue(changedSubComp.getParameters().containsKey("title"));
+    assertTrue(changedSubComp.getParameters().containsKey("label"));
+    assertSame(other, tapestryProject.findComponent("Other"));
+  }
+
+  @Override
+  protected String getBasePath() {
+    return "";
+  }
+}